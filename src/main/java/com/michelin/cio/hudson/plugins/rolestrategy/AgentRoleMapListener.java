@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import hudson.Extension;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Node;
+import hudson.security.AuthorizationStrategy;
+import jenkins.model.Jenkins;
+import jenkins.model.NodeListener;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Keeps the agent roles matching each agent while the agent exists.
+ *
+ * <p>The matching roles are computed when an agent is created, rather than on the first permission check, and
+ * dropped when the agent is removed. Clouds may create and remove thousands of short-lived agents, which would
+ * otherwise evict each other from the cache of matching roles.
+ */
+@Extension
+@Restricted(NoExternalUse.class)
+public class AgentRoleMapListener extends NodeListener {
+
+  @CheckForNull
+  private static RoleMap getAgentRoles() {
+    AuthorizationStrategy strategy = Jenkins.get().getAuthorizationStrategy();
+    if (strategy instanceof RoleBasedAuthorizationStrategy) {
+      return ((RoleBasedAuthorizationStrategy) strategy).getRoleMap(RoleType.Slave);
+    }
+    return null;
+  }
+
+  /**
+   * Pin the agents loaded after the strategy at startup.
+   */
+  @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+  public static void init() {
+    RoleMap agentRoles = getAgentRoles();
+    if (agentRoles != null) {
+      pinAgents(agentRoles);
+    }
+  }
+
+  /**
+   * Pin the matching agent roles of the built-in node and of the existing agents.
+   *
+   * @param agentRoles The agent roles
+   */
+  static void pinAgents(RoleMap agentRoles) {
+    Jenkins jenkins = Jenkins.get();
+    agentRoles.pinMatchingRoleMap(jenkins.getNodeName());
+    for (Node node : jenkins.getNodes()) {
+      String name = node.getNodeName();
+      agentRoles.pinMatchingRoleMap(name);
+      // the agent may have been removed, and unpinned by onDeleted, before it was pinned
+      if (jenkins.getNode(name) == null) {
+        agentRoles.unpinMatchingRoleMap(name);
+      }
+    }
+  }
+
+  @Override
+  protected void onCreated(Node node) {
+    RoleMap agentRoles = getAgentRoles();
+    if (agentRoles != null) {
+      agentRoles.pinMatchingRoleMap(node.getNodeName());
+    }
+  }
+
+  @Override
+  protected void onUpdated(Node oldOne, Node newOne) {
+    RoleMap agentRoles = getAgentRoles();
+    if (agentRoles != null && !oldOne.getNodeName().equals(newOne.getNodeName())) {
+      agentRoles.unpinMatchingRoleMap(oldOne.getNodeName());
+      agentRoles.pinMatchingRoleMap(newOne.getNodeName());
+    }
+  }
+
+  @Override
+  protected void onDeleted(Node node) {
+    RoleMap agentRoles = getAgentRoles();
+    if (agentRoles != null) {
+      agentRoles.unpinMatchingRoleMap(node.getNodeName());
+    }
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.security.Permission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionHelper;
+
+/**
+ * The operations of a bulk modification of the roles, see {@link RoleBasedAuthorizationStrategy#doBulk}.
+ *
+ * <p>Each operation is validated against the roles and templates as they will be once the previous operations have
+ * been applied, and staged in the {@link RoleMap.Batch} of its type of roles. Nothing is modified until
+ * {@link #commit()}, which is only allowed when all the operations are valid.
+ *
+ * <p>The operations are validated without holding the locks of the role maps: the generation of each role map is
+ * recorded when its roles are first read, and {@link #commit()} gives up if one of them has been modified since, in
+ * which case the operations must be validated again. The templates are only modified while holding the lock of the
+ * strategy, which the caller holds from the creation of the bulk modification until the templates are applied.
+ */
+final class BulkUpdate {
+
+  private final RoleBasedAuthorizationStrategy strategy;
+
+  /**
+   * The role maps read or modified by the operations, with their generation when they were first read.
+   */
+  private final Map<RoleType, RoleMap> roleMaps = new EnumMap<>(RoleType.class);
+
+  private final Map<RoleType, Long> generations = new EnumMap<>(RoleType.class);
+
+  private final Map<RoleType, RoleMap.Batch> batches = new EnumMap<>(RoleType.class);
+
+  /**
+   * The roles of each type, as they will be once the staged operations have been applied.
+   */
+  private final Map<RoleType, Map<String, Role>> roles = new EnumMap<>(RoleType.class);
+
+  /**
+   * The templates, as they will be once the staged operations have been applied.
+   */
+  private final Map<String, PermissionTemplate> templates;
+
+  private final Map<String, PermissionTemplate> addedTemplates = new LinkedHashMap<>();
+
+  private final List<String> operations = new ArrayList<>();
+
+  /**
+   * The error of each operation, {@code null} for the valid ones.
+   */
+  private final List<String> errors = new ArrayList<>();
+
+  private boolean invalid;
+
+  private boolean denied;
+
+  /**
+   * Create an empty bulk modification.
+   *
+   * @param strategy The strategy to modify
+   * @param templates The current permission templates
+   */
+  BulkUpdate(@NonNull RoleBasedAuthorizationStrategy strategy, @NonNull Map<String, PermissionTemplate> templates) {
+    this.strategy = strategy;
+    this.templates = new HashMap<>(templates);
+  }
+
+  /**
+   * Validate an operation and stage it.
+   *
+   * @param operation The operation, as sent by the client
+   */
+  void add(@CheckForNull Object operation) {
+    String op = null;
+    String error;
+    if (operation instanceof JSONObject) {
+      JSONObject json = (JSONObject) operation;
+      op = json.optString("op", null);
+      error = op == null ? "Missing op" : stage(op, json);
+    } else {
+      error = "Operations must be JSON objects";
+    }
+    operations.add(op);
+    errors.add(error);
+    invalid |= error != null;
+  }
+
+  @CheckForNull
+  private String stage(@NonNull String op, @NonNull JSONObject json) {
+    switch (op) {
+      case "addRole":
+        return addRole(json);
+      case "removeRole":
+        return removeRole(json);
+      case "assignRole":
+        return assignRole(json, true);
+      case "unassignRole":
+        return assignRole(json, false);
+      case "deleteSid":
+        return deleteSid(json);
+      case "addTemplate":
+        return addTemplate(json);
+      default:
+        return "Unknown op: " + op;
+    }
+  }
+
+  private String addRole(JSONObject json) {
+    String type = json.optString("type", null);
+    String error = checkType(type);
+    if (error != null) {
+      return error;
+    }
+    String roleName = Util.fixEmpty(json.optString("roleName", null));
+    if (roleName == null) {
+      return "Missing roleName";
+    }
+    Map<String, Role> rolesOfType = getRoles(type);
+    Role existing = rolesOfType.get(roleName);
+    boolean overwrite = json.optBoolean("overwrite", false);
+    if (existing != null && !overwrite) {
+      return "A role with name " + roleName + " already exists.";
+    }
+
+    String pattern = RoleBasedAuthorizationStrategy.GLOBAL.equals(type) ? ".*" : json.optString("pattern", ".*");
+    Role role;
+    try {
+      role = new Role(roleName, Pattern.compile(pattern), getPermissions(json), "");
+    } catch (PatternSyntaxException e) {
+      return "Invalid pattern: " + e.getDescription();
+    }
+    String templateName = Util.fixEmptyAndTrim(json.optString("template", null));
+    if (RoleBasedAuthorizationStrategy.PROJECT.equals(type) && templateName != null) {
+      PermissionTemplate template = templates.get(templateName);
+      if (template == null) {
+        return "A template with name " + templateName + " doesn't exists.";
+      }
+      role.setTemplateName(templateName);
+      role.refreshPermissionsFromTemplate(template);
+    }
+
+    RoleMap.Batch batch = getBatch(type);
+    if (existing != null) {
+      batch.removeRole(existing);
+    }
+    batch.addRole(role);
+    rolesOfType.put(roleName, role);
+    return null;
+  }
+
+  private String removeRole(JSONObject json) {
+    String type = json.optString("type", null);
+    String error = checkType(type);
+    if (error != null) {
+      return error;
+    }
+    String roleName = Util.fixEmpty(json.optString("roleName", null));
+    if (roleName == null) {
+      return "Missing roleName";
+    }
+    Role role = getRoles(type).remove(roleName);
+    if (role == null) {
+      return "No role with name " + roleName;
+    }
+    getBatch(type).removeRole(role);
+    return null;
+  }
+
+  private String assignRole(JSONObject json, boolean assign) {
+    String type = json.optString("type", null);
+    String error = checkType(type);
+    if (error != null) {
+      return error;
+    }
+    PermissionEntry sid = getSid(json);
+    if (sid == null) {
+      return "Missing sid, or invalid sidType (USER, GROUP or EITHER)";
+    }
+    String roleName = Util.fixEmpty(json.optString("roleName", null));
+    if (roleName == null) {
+      return "Missing roleName";
+    }
+    Role role = getRoles(type).get(roleName);
+    if (role == null) {
+      return "No role with name " + roleName;
+    }
+    if (assign) {
+      getBatch(type).assignRole(role, sid);
+    } else {
+      getBatch(type).unAssignRole(role, sid);
+    }
+    return null;
+  }
+
+  private String deleteSid(JSONObject json) {
+    String type = json.optString("type", null);
+    String error = checkType(type);
+    if (error != null) {
+      return error;
+    }
+    PermissionEntry sid = getSid(json);
+    if (sid == null) {
+      return "Missing sid, or invalid sidType (USER, GROUP or EITHER)";
+    }
+    getBatch(type).deleteSids(sid);
+    return null;
+  }
+
+  private String addTemplate(JSONObject json) {
+    if (!RoleBasedAuthorizationStrategy.hasPermissionByRoleTypeForUpdates(RoleBasedAuthorizationStrategy.PROJECT)) {
+      denied = true;
+      return "Missing permission to modify the templates";
+    }
+    String name = Util.fixEmpty(json.optString("name", null));
+    if (name == null) {
+      return "Missing name";
+    }
+    if (templates.containsKey(name) && !json.optBoolean("overwrite", false)) {
+      return "A template with name " + name + " already exists.";
+    }
+    PermissionTemplate template = new PermissionTemplate(getPermissions(json), name);
+    templates.put(name, template);
+    addedTemplates.put(name, template);
+    return null;
+  }
+
+  /**
+   * Checks that the type of roles is known, and that the current user may modify these roles.
+   */
+  @CheckForNull
+  private String checkType(@CheckForNull String type) {
+    if (!RoleBasedAuthorizationStrategy.GLOBAL.equals(type) && !RoleBasedAuthorizationStrategy.PROJECT.equals(type)
+        && !RoleBasedAuthorizationStrategy.SLAVE.equals(type)) {
+      return "Unknown type: " + type;
+    }
+    if (!RoleBasedAuthorizationStrategy.hasPermissionByRoleTypeForUpdates(type)) {
+      denied = true;
+      return "Missing permission to modify the " + type;
+    }
+    return null;
+  }
+
+  private Map<String, Role> getRoles(String type) {
+    return roles.computeIfAbsent(RoleType.fromString(type), roleType -> {
+      RoleMap roleMap = getRoleMap(roleType);
+      // read before the roles: a modification in between makes the commit give up, rather than go unnoticed
+      generations.put(roleType, roleMap.getGeneration());
+      Map<String, Role> byName = new HashMap<>();
+      for (Role role : roleMap.getRoles()) {
+        byName.put(role.getName(), role);
+      }
+      return byName;
+    });
+  }
+
+  private RoleMap.Batch getBatch(String type) {
+    return batches.computeIfAbsent(RoleType.fromString(type), roleType -> getRoleMap(roleType).batch());
+  }
+
+  private RoleMap getRoleMap(RoleType roleType) {
+    return roleMaps.computeIfAbsent(roleType, strategy::getRoleMap);
+  }
+
+  private static Set<Permission> getPermissions(JSONObject json) {
+    return PermissionHelper.fromStrings(Arrays.asList(json.optString("permissionIds").split(",")), true);
+  }
+
+  @CheckForNull
+  private static PermissionEntry getSid(JSONObject json) {
+    String sid = Util.fixEmpty(json.optString("sid", null));
+    AuthorizationType sidType = RoleBasedAuthorizationStrategy.parseAuthorizationType(json.optString("sidType"));
+    return sid == null || sidType == null ? null : new PermissionEntry(sidType, sid);
+  }
+
+  /**
+   * Whether all the operations are valid and allowed.
+   *
+   * @return true if the operations can be committed
+   */
+  boolean isValid() {
+    return !invalid;
+  }
+
+  /**
+   * Whether an operation has been rejected because the current user isn't allowed to perform it.
+   *
+   * @return true if an operation has been denied
+   */
+  boolean isDenied() {
+    return denied;
+  }
+
+  /**
+   * Apply the staged modifications of the roles, unless one of the role maps read by the operations has been modified
+   * or replaced since. Only the locks of the role maps used by the operations are held, and only while checking and
+   * applying the modifications; the readers don't wait for them, and see the modifications of each type of roles at
+   * once.
+   *
+   * @return false if nothing has been applied because the operations must be validated again
+   */
+  boolean commit() {
+    if (invalid) {
+      throw new IllegalStateException("Cannot commit invalid operations");
+    }
+    // the locks are always taken in the order of the types of roles
+    return commit(roleMaps.values().iterator());
+  }
+
+  private boolean commit(Iterator<RoleMap> toLock) {
+    if (toLock.hasNext()) {
+      synchronized (toLock.next()) {
+        return commit(toLock);
+      }
+    }
+    for (Map.Entry<RoleType, RoleMap> entry : roleMaps.entrySet()) {
+      Long generation = generations.get(entry.getKey());
+      if (strategy.getRoleMap(entry.getKey()) != entry.getValue()
+          || generation != null && generation != entry.getValue().getGeneration()) {
+        return false;
+      }
+    }
+    for (RoleMap.Batch batch : batches.values()) {
+      batch.commit();
+    }
+    return true;
+  }
+
+  /**
+   * The templates added or replaced by the operations, which the strategy applies after {@link #commit()}.
+   *
+   * @return the templates by name
+   */
+  @NonNull
+  Map<String, PermissionTemplate> getAddedTemplates() {
+    return addedTemplates;
+  }
+
+  /**
+   * The result of each operation: {@code ok}, {@code error} with the reason, or {@code skipped} when the operation is
+   * valid but hasn't been applied because of the errors of other operations.
+   *
+   * @return the results, in the order of the operations
+   */
+  @NonNull
+  JSONArray getResults() {
+    JSONArray results = new JSONArray();
+    for (int i = 0; i < operations.size(); i++) {
+      JSONObject result = new JSONObject();
+      result.put("index", i);
+      if (operations.get(i) != null) {
+        result.put("op", operations.get(i));
+      }
+      String error = errors.get(i);
+      if (error != null) {
+        result.put("status", "error");
+        result.put("message", error);
+      } else {
+        result.put("status", invalid ? "skipped" : "ok");
+      }
+      results.add(result);
+    }
+    return results;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.IMacroExtension;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.Macro;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleMacroExtension;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Util;
+import hudson.security.AccessControlled;
+import hudson.security.Permission;
+
+/**
+ * A macro role bound to its parsed {@link Macro} and {@link RoleMacroExtension}.
+ *
+ * <p>The macro is parsed, the extension looked up and the {@code hasPermission} overload of the extension chosen once,
+ * so that evaluating the role doesn't need any lookup or reflection.
+ */
+abstract class MacroEvaluator {
+
+  /**
+   * Evaluator of the roles whose name isn't a valid macro, which never grant anything.
+   */
+  private static final MacroEvaluator INVALID = new MacroEvaluator() {
+    @Override
+    boolean hasPermission(PermissionEntry entry, Permission permission, RoleType roleType, AccessControlled item) {
+      return false;
+    }
+  };
+
+  /**
+   * Bind a macro role.
+   *
+   * @param role The role, whose name is a macro
+   * @return The evaluator of the role
+   */
+  @NonNull
+  static MacroEvaluator of(@NonNull Role role) {
+    Macro macro = RoleMacroExtension.getMacro(role.getName());
+    if (macro == null) {
+      return INVALID;
+    }
+    RoleMacroExtension extension = RoleMacroExtension.getMacroExtension(macro.getName());
+    if (Util.isOverridden(IMacroExtension.class, extension.getClass(), "hasPermission", PermissionEntry.class,
+        Permission.class, RoleType.class, AccessControlled.class, Macro.class)) {
+      return new EntryEvaluator(macro, extension);
+    }
+    return new SidEvaluator(macro, extension);
+  }
+
+  /**
+   * Checks whether the macro grants the permission to the sid assigned to the role.
+   *
+   * @param entry The assignment of the sid to the role
+   * @param permission The permission
+   * @param roleType The type of the role
+   * @param item The controlled item
+   * @return True if the permission is granted
+   */
+  abstract boolean hasPermission(PermissionEntry entry, Permission permission, RoleType roleType, AccessControlled item);
+
+  /**
+   * Calls the {@link PermissionEntry} overload of the extension.
+   */
+  private static final class EntryEvaluator extends MacroEvaluator {
+    private final Macro macro;
+    private final RoleMacroExtension extension;
+
+    EntryEvaluator(Macro macro, RoleMacroExtension extension) {
+      this.macro = macro;
+      this.extension = extension;
+    }
+
+    @Override
+    boolean hasPermission(PermissionEntry entry, Permission permission, RoleType roleType, AccessControlled item) {
+      return extension.IsApplicable(roleType) && extension.hasPermission(entry, permission, roleType, item, macro);
+    }
+  }
+
+  /**
+   * Calls the sid overload of extensions which only implement it.
+   */
+  private static final class SidEvaluator extends MacroEvaluator {
+    private final Macro macro;
+    private final RoleMacroExtension extension;
+
+    SidEvaluator(Macro macro, RoleMacroExtension extension) {
+      this.macro = macro;
+      this.extension = extension;
+    }
+
+    @Override
+    boolean hasPermission(PermissionEntry entry, Permission permission, RoleType roleType, AccessControlled item) {
+      return extension.IsApplicable(roleType) && extension.hasPermission(entry.getSid(), permission, roleType, item, macro);
+    }
+  }
+}
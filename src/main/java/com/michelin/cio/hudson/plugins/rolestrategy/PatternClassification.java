@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.regex.Pattern;
+
+/**
+ * Shape of a role pattern. Most project roles use a literal item name or a literal folder name followed by anything,
+ * e.g. {@code job}, {@code ^TeamA/.*} or {@code TeamA(/.*)?}. Such patterns are matched with a prefix tree instead of
+ * a regular expression.
+ */
+final class PatternClassification {
+
+  /**
+   * Kind of pattern.
+   */
+  enum Kind {
+    /**
+     * Matches a single name.
+     */
+    LITERAL,
+    /**
+     * Matches all the names starting with a prefix, and possibly a single other name.
+     */
+    LITERAL_PREFIX,
+    /**
+     * Any other pattern.
+     */
+    GENERAL
+  }
+
+  static final PatternClassification GENERAL = new PatternClassification(Kind.GENERAL, null, null);
+
+  private final Kind kind;
+
+  @CheckForNull
+  private final String literal;
+
+  @CheckForNull
+  private final String prefix;
+
+  private PatternClassification(Kind kind, @CheckForNull String literal, @CheckForNull String prefix) {
+    this.kind = kind;
+    this.literal = literal;
+    this.prefix = prefix;
+  }
+
+  @NonNull
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Get the name matched exactly.
+   *
+   * @return the name, {@code null} if the pattern doesn't match a name exactly
+   */
+  @CheckForNull
+  String getLiteral() {
+    return literal;
+  }
+
+  /**
+   * Get the prefix of the matched names. A name matches if it starts with the prefix and the rest of the name doesn't
+   * contain a line terminator, as {@code .} doesn't match them.
+   *
+   * @return the prefix, {@code null} for a literal pattern
+   */
+  @CheckForNull
+  String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Classify a pattern. Recognizes, with an optional leading {@code ^} and trailing {@code $}:
+   * <ul>
+   *   <li>{@code literal}</li>
+   *   <li>{@code literal.*}</li>
+   *   <li>{@code literal(more.*)} and {@code literal(?:more.*)}</li>
+   *   <li>{@code literal(more.*)?} and {@code literal(?:more.*)?}</li>
+   * </ul>
+   *
+   * @param pattern the pattern to classify
+   * @return the classification
+   */
+  @NonNull
+  static PatternClassification of(@NonNull Pattern pattern) {
+    if (pattern.flags() != 0) {
+      return GENERAL;
+    }
+    String regex = pattern.pattern();
+    int start = regex.startsWith("^") ? 1 : 0;
+    int end = regex.length();
+    if (end > start && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+      end--;
+    }
+    StringBuilder literal = new StringBuilder();
+    int pos = readLiteral(regex, start, end, literal);
+    if (pos == end) {
+      return new PatternClassification(Kind.LITERAL, literal.toString(), null);
+    }
+    if (regex.startsWith(".*", pos) && pos + 2 == end) {
+      return new PatternClassification(Kind.LITERAL_PREFIX, null, literal.toString());
+    }
+    if (regex.charAt(pos) != '(') {
+      return GENERAL;
+    }
+    pos++;
+    if (regex.startsWith("?:", pos)) {
+      pos += 2;
+    }
+    StringBuilder more = new StringBuilder(literal);
+    pos = readLiteral(regex, pos, end, more);
+    if (!regex.startsWith(".*)", pos)) {
+      return GENERAL;
+    }
+    pos += 3;
+    if (pos == end) {
+      return new PatternClassification(Kind.LITERAL_PREFIX, null, more.toString());
+    }
+    if (pos + 1 == end && regex.charAt(pos) == '?') {
+      return new PatternClassification(Kind.LITERAL_PREFIX, literal.toString(), more.toString());
+    }
+    return GENERAL;
+  }
+
+  private static boolean isEscaped(String regex, int index) {
+    int backslashes = 0;
+    for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  /**
+   * Read literal characters until the first construct with a special meaning.
+   * A literal character followed by a quantifier isn't literal, it is left for the caller to reject.
+   *
+   * @return the position of the first character which hasn't been read
+   */
+  private static int readLiteral(String regex, int pos, int end, StringBuilder literal) {
+    while (pos < end) {
+      char c = regex.charAt(pos);
+      int next;
+      char value;
+      if (c == '\\') {
+        if (pos + 1 >= end || Character.isLetterOrDigit(regex.charAt(pos + 1))) {
+          return pos;
+        }
+        value = regex.charAt(pos + 1);
+        next = pos + 2;
+      } else if (".[]{}()*+?^$|".indexOf(c) >= 0) {
+        return pos;
+      } else {
+        value = c;
+        next = pos + 1;
+      }
+      if (next < end && "*+?{".indexOf(regex.charAt(next)) >= 0) {
+        return pos;
+      }
+      literal.append(value);
+      pos = next;
+    }
+    return pos;
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import hudson.security.SecurityRealm;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.rolestrategy.Settings;
+import org.jenkinsci.plugins.rolestrategy.permissions.ImplyingPermissions;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Cache of permission decisions, keyed by principal and authorities, item name and permission.
+ *
+ * <p>Instead of clearing the cache when roles are modified, every modification increments a generation number.
+ * Decisions are stored with the generation that was current when the computation started and are ignored once the
+ * generation has moved on. They are also ignored once one of the permissions implying the permission of their key has
+ * been enabled or disabled; other changes, e.g. of the permissions of a role by a caller of
+ * {@link Role#refreshPermissionsFromTemplate(PermissionTemplate)} other than the strategy, are only visible once the
+ * decisions expire.
+ *
+ * <p>Besides the decisions of a single {@link RoleMap}, the cache holds the decisions of the complete ACL of the
+ * ancestor folders of items, which are checked again and again for {@link hudson.model.Item#READ} and
+ * {@link hudson.model.Item#DISCOVER}.
+ */
+@Restricted(NoExternalUse.class)
+public final class PermissionDecisionCache {
+
+  private static final AtomicLong generation = new AtomicLong();
+
+  private static final LongAdder hits = new LongAdder();
+
+  private static final LongAdder misses = new LongAdder();
+
+  private static final Cache<Key, Decision> cache = Caffeine.newBuilder()
+      .maximumSize(Math.max(Settings.PERMISSION_DECISION_CACHE_MAX_SIZE, 0))
+      .expireAfterWrite(Settings.PERMISSION_DECISION_CACHE_EXPIRATION_TIME_SEC, TimeUnit.SECONDS).build();
+
+  /**
+   * Lookup key of each thread, with the principal of the last authentication checked by the thread.
+   */
+  private static final ThreadLocal<Lookup> lookups = ThreadLocal.withInitial(Lookup::new);
+
+  private PermissionDecisionCache() {
+    // Cannot be constructed
+  }
+
+  static boolean isEnabled() {
+    return Settings.PERMISSION_DECISION_CACHE_MAX_SIZE > 0;
+  }
+
+  /**
+   * Marks all the cached decisions as stale. Called by the {@link RoleMap} and {@link RoleBasedAuthorizationStrategy}
+   * mutators whenever roles, their permissions or their assignments change.
+   */
+  static void invalidate() {
+    generation.incrementAndGet();
+  }
+
+  static long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Get a cached decision.
+   *
+   * @param key the decision key
+   * @param source the {@link RoleMap} or {@link RoleBasedAuthorizationStrategy} taking the decision
+   * @return the decision, {@code null} if there is no valid cached decision
+   */
+  @CheckForNull
+  static Boolean get(@NonNull Key key, @NonNull Object source) {
+    Decision decision = cache.getIfPresent(key);
+    if (decision != null && decision.isValid(source, key.permission)) {
+      hits.increment();
+      return decision.granted;
+    }
+    misses.increment();
+    return null;
+  }
+
+  /**
+   * Store a decision.
+   *
+   * @param key the decision key
+   * @param source the {@link RoleMap} or {@link RoleBasedAuthorizationStrategy} which took the decision
+   * @param generation the generation read before the decision was computed
+   * @param granted the decision
+   */
+  static void put(@NonNull Key key, @NonNull Object source, long generation, boolean granted) {
+    cache.put(key, new Decision(source, generation, key.permission, granted));
+  }
+
+  /**
+   * Number of permission checks answered from the cache.
+   *
+   * @return the hit count
+   */
+  public static long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Number of permission checks which had to be computed.
+   *
+   * @return the miss count
+   */
+  public static long getMissCount() {
+    return misses.sum();
+  }
+
+  public static long getSize() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * Get the key of a permission check, to look up a decision.
+   *
+   * <p>Looking up a decision doesn't allocate: the key is reused by the next call on the same thread, and the principal
+   * and authorities are only read again when the thread checks another authentication. The key must be
+   * {@link Key#copy() copied} before being stored, or before checking other permissions which may look up decisions,
+   * e.g. on the parent of an item.
+   *
+   * @param roleType the type of the {@link RoleMap} taking the decision, {@code null} for the complete ACL of an item
+   * @param itemName the full name of the item, node or computer
+   * @param authentication the authentication to check
+   * @param permission the permission to check
+   * @return the key of this thread
+   */
+  @NonNull
+  static Key lookupKey(@CheckForNull RoleType roleType, @NonNull String itemName, @NonNull Authentication authentication,
+      @NonNull Permission permission) {
+    Lookup lookup = lookups.get();
+    if (lookup.authentication != authentication) {
+      lookup.principal = new Principal(authentication);
+      lookup.authentication = authentication;
+    }
+    lookup.key.set(roleType, itemName, lookup.principal, permission);
+    return lookup.key;
+  }
+
+  /**
+   * Identifies a permission check.
+   */
+  static final class Key {
+    @CheckForNull
+    private RoleType roleType;
+    private String itemName;
+    private Principal principal;
+    private Permission permission;
+    private int hash;
+
+    private Key() {
+    }
+
+    private void set(@CheckForNull RoleType roleType, @NonNull String itemName, @NonNull Principal principal,
+        @NonNull Permission permission) {
+      this.roleType = roleType;
+      this.itemName = itemName;
+      this.principal = principal;
+      this.permission = permission;
+      // no Objects.hash, which allocates an array
+      int h = roleType == null ? 0 : roleType.hashCode();
+      h = 31 * h + itemName.hashCode();
+      h = 31 * h + principal.hash;
+      this.hash = 31 * h + permission.hashCode();
+    }
+
+    /**
+     * Whether the authentication is {@link ACL#SYSTEM2}.
+     *
+     * @return true for the system authentication
+     */
+    boolean isSystem() {
+      return principal.system;
+    }
+
+    /**
+     * Copy a {@link #lookupKey lookup key}, so that it can be stored.
+     *
+     * @return the copy
+     */
+    @NonNull
+    Key copy() {
+      Key copy = new Key();
+      copy.set(roleType, itemName, principal, permission);
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hash == other.hash && roleType == other.roleType && permission == other.permission
+          && itemName.equals(other.itemName) && principal.equals(other.principal);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The principal and authorities of an authentication.
+   */
+  private static final class Principal {
+    private final String name;
+    private final String[] authorities;
+    private final boolean anonymous;
+    private final boolean system;
+    private final int hash;
+
+    Principal(Authentication authentication) {
+      this.name = authentication.getName();
+      Collection<? extends GrantedAuthority> grantedAuthorities = authentication.getAuthorities();
+      this.authorities = new String[grantedAuthorities.size()];
+      int i = 0;
+      for (GrantedAuthority authority : grantedAuthorities) {
+        this.authorities[i++] = authority.getAuthority();
+      }
+      this.anonymous = ACL.isAnonymous2(authentication);
+      this.system = authentication.equals(ACL.SYSTEM2);
+      this.hash = 31 * (31 * name.hashCode() + Arrays.hashCode(authorities)) + Boolean.hashCode(anonymous);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Principal)) {
+        return false;
+      }
+      Principal other = (Principal) o;
+      return hash == other.hash && anonymous == other.anonymous && system == other.system && name.equals(other.name)
+          && Arrays.equals(authorities, other.authorities);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The lookup key of a thread, see {@link #lookupKey}.
+   */
+  private static final class Lookup {
+    private final Key key = new Key();
+    private Authentication authentication;
+    private Principal principal;
+  }
+
+  /**
+   * A cached decision with everything it depends on besides the key.
+   */
+  private static final class Decision {
+    private final Object source;
+    private final long generation;
+    private final SecurityRealm securityRealm;
+    private final boolean caseSensitive;
+    /**
+     * The enabled permissions implying the permission of the key. A new mask is built whenever one of them is enabled or
+     * disabled.
+     */
+    private final PermissionMask implying;
+    private final boolean granted;
+
+    Decision(Object source, long generation, Permission permission, boolean granted) {
+      this.source = source;
+      this.generation = generation;
+      this.securityRealm = Jenkins.get().getSecurityRealm();
+      this.caseSensitive = RoleMap.FORCE_CASE_SENSITIVE;
+      this.implying = ImplyingPermissions.of(permission);
+      this.granted = granted;
+    }
+
+    boolean isValid(Object source, Permission permission) {
+      return this.source == source && generation == PermissionDecisionCache.generation.get()
+          && securityRealm == Jenkins.get().getSecurityRealm() && caseSensitive == RoleMap.FORCE_CASE_SENSITIVE
+          && implying == ImplyingPermissions.of(permission);
+    }
+  }
+}
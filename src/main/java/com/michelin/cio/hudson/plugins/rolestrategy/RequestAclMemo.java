@@ -0,0 +1,273 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.security.ACL;
+import hudson.security.SidACL;
+import hudson.util.PluginServletFilter;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.rolestrategy.Settings;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * Memo of the ACLs and permission decisions computed while handling a single HTTP request.
+ *
+ * <p>Rendering a page asks the same questions for the same items again and again. When
+ * {@link Settings#REQUEST_ACL_MEMO} is enabled, a servlet filter binds a memo to every request, as an attribute of the
+ * {@link StaplerRequest2}, and discards it once the request has been handled. Unlike the {@link PermissionDecisionCache},
+ * the memo also holds decisions depending on the state of the items, e.g. when macros are used, as the state of the
+ * items isn't expected to change while a page is rendered. Everything is dropped as soon as the roles are modified.
+ *
+ * @since TBD
+ */
+@Restricted(NoExternalUse.class)
+public final class RequestAclMemo {
+
+  private static final Logger LOGGER = Logger.getLogger(RequestAclMemo.class.getName());
+
+  private static final String ATTRIBUTE = RequestAclMemo.class.getName();
+
+  private static final LongAdder savedChecks = new LongAdder();
+
+  private final Thread owner = Thread.currentThread();
+
+  private final Map<PermissionDecisionCache.Key, Decision> decisions = new HashMap<>();
+
+  private final Map<RoleType, Map<String, Memoized<ACL>>> acls = new EnumMap<>(RoleType.class);
+
+  @CheckForNull
+  private Memoized<SidACL> rootAcl;
+
+  private long generation = PermissionDecisionCache.getGeneration();
+
+  private int saved;
+
+  private RequestAclMemo() {
+  }
+
+  /**
+   * Get the memo of the request handled by the current thread.
+   *
+   * @return the memo, {@code null} if the memo is disabled or the thread isn't handling a request
+   */
+  @CheckForNull
+  static RequestAclMemo current() {
+    if (!Settings.REQUEST_ACL_MEMO) {
+      return null;
+    }
+    StaplerRequest2 request = Stapler.getCurrentRequest2();
+    if (request == null) {
+      return null;
+    }
+    Object memo = request.getAttribute(ATTRIBUTE);
+    // requests may be handed over to other threads, the memo isn't thread-safe
+    if (memo instanceof RequestAclMemo && ((RequestAclMemo) memo).owner == Thread.currentThread()) {
+      RequestAclMemo current = (RequestAclMemo) memo;
+      current.checkGeneration();
+      return current;
+    }
+    return null;
+  }
+
+  /**
+   * Drops everything once the roles have been modified.
+   */
+  private void checkGeneration() {
+    long currentGeneration = PermissionDecisionCache.getGeneration();
+    if (generation != currentGeneration) {
+      decisions.clear();
+      acls.clear();
+      rootAcl = null;
+      generation = currentGeneration;
+    }
+  }
+
+  private void saved() {
+    saved++;
+    savedChecks.increment();
+  }
+
+  /**
+   * Get a decision taken earlier during the request.
+   *
+   * @param key the decision key
+   * @param source the {@link RoleMap} taking the decision
+   * @return the decision, {@code null} if the decision hasn't been taken yet
+   */
+  @CheckForNull
+  Boolean getDecision(@NonNull PermissionDecisionCache.Key key, @NonNull Object source) {
+    Decision decision = decisions.get(key);
+    if (decision != null && decision.source == source) {
+      saved();
+      return decision.granted;
+    }
+    return null;
+  }
+
+  void putDecision(@NonNull PermissionDecisionCache.Key key, @NonNull Object source, boolean granted) {
+    decisions.put(key, new Decision(source, granted));
+  }
+
+  /**
+   * Get the ACL of an item, computer or node, building it on the first call during the request.
+   *
+   * @param source the {@link RoleBasedAuthorizationStrategy} building the ACL
+   * @param roleType the type of the roles controlling the object
+   * @param name the full name of the object
+   * @param builder builds the ACL
+   * @return the ACL
+   */
+  @NonNull
+  ACL getACL(@NonNull Object source, @NonNull RoleType roleType, @NonNull String name, @NonNull Supplier<ACL> builder) {
+    Map<String, Memoized<ACL>> byName = acls.computeIfAbsent(roleType, t -> new HashMap<>());
+    Memoized<ACL> memoized = byName.get(name);
+    if (memoized != null && memoized.source == source) {
+      saved();
+      return memoized.value;
+    }
+    ACL acl = builder.get();
+    byName.put(name, new Memoized<>(source, acl));
+    return acl;
+  }
+
+  /**
+   * Get the root ACL, building it on the first call during the request.
+   *
+   * @param source the {@link RoleBasedAuthorizationStrategy} building the ACL
+   * @param builder builds the ACL
+   * @return the ACL
+   */
+  @NonNull
+  SidACL getRootACL(@NonNull Object source, @NonNull Supplier<SidACL> builder) {
+    Memoized<SidACL> memoized = rootAcl;
+    if (memoized != null && memoized.source == source) {
+      saved();
+      return memoized.value;
+    }
+    SidACL acl = builder.get();
+    rootAcl = new Memoized<>(source, acl);
+    return acl;
+  }
+
+  /**
+   * Number of ACLs and decisions reused from the memo during the request.
+   *
+   * @return the number of saved checks
+   */
+  public int getSavedChecks() {
+    return saved;
+  }
+
+  /**
+   * Number of ACLs and decisions reused from the memos of all the requests since Jenkins started.
+   *
+   * @return the number of saved checks
+   */
+  public static long getTotalSavedChecks() {
+    return savedChecks.sum();
+  }
+
+  /**
+   * Installs the filter binding the memo to the requests.
+   *
+   * @throws ServletException if the filter can't be installed
+   */
+  @Initializer(after = InitMilestone.PLUGINS_STARTED)
+  public static void init() throws ServletException {
+    if (Settings.REQUEST_ACL_MEMO) {
+      PluginServletFilter.addFilter(new MemoFilter());
+    }
+  }
+
+  private static final class Decision {
+    private final Object source;
+    private final boolean granted;
+
+    Decision(Object source, boolean granted) {
+      this.source = source;
+      this.granted = granted;
+    }
+  }
+
+  /**
+   * An ACL with the strategy which built it, as the strategy may be replaced while the request is handled.
+   */
+  private static final class Memoized<T> {
+    private final Object source;
+    private final T value;
+
+    Memoized(Object source, T value) {
+      this.source = source;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Binds a memo to every request and discards it at the end of the request.
+   */
+  static final class MemoFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+      if (request.getAttribute(ATTRIBUTE) != null) {
+        // already bound, e.g. on a forward
+        chain.doFilter(request, response);
+        return;
+      }
+      RequestAclMemo memo = new RequestAclMemo();
+      request.setAttribute(ATTRIBUTE, memo);
+      try {
+        chain.doFilter(request, response);
+      } finally {
+        request.removeAttribute(ATTRIBUTE);
+        if (memo.saved > 0 && LOGGER.isLoggable(Level.FINE) && request instanceof HttpServletRequest) {
+          LOGGER.log(Level.FINE, "Saved {0} permission checks while handling {1}",
+              new Object[] {memo.saved, ((HttpServletRequest) request).getRequestURI()});
+        }
+      }
+    }
+  }
+}
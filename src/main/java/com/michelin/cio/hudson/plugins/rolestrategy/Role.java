@@ -37,8 +37,8 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
-import org.apache.commons.collections.CollectionUtils;
 import org.jenkinsci.plugins.rolestrategy.permissions.PermissionHelper;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -80,6 +80,16 @@ public final class Role implements Comparable {
    */
   private Set<Permission> permissions;
 
+  /**
+   * {@link Permission}s hold by the role as a bitmask, kept in sync with {@link #permissions}.
+   */
+  private transient volatile PermissionMask permissionMask;
+
+  /**
+   * Shape of {@link #pattern}, used to match the literal and literal prefix patterns without regular expressions.
+   */
+  private transient volatile PatternClassification patternClassification;
+
   private transient Integer cachedHashCode = null;
 
   /**
@@ -141,6 +151,7 @@ public final class Role implements Comparable {
   public Role(String name, Pattern pattern, Set<Permission> permissions, @CheckForNull String description, String templateName) {
     this.name = name;
     this.pattern = pattern;
+    this.patternClassification = PatternClassification.of(pattern);
     this.description = description;
     this.templateName = templateName;
     this.permissions = new HashSet<>();
@@ -151,6 +162,7 @@ public final class Role implements Comparable {
         this.permissions.add(perm);
       }
     }
+    permissionMask = PermissionMask.of(this.permissions);
     cachedHashCode = _hashCode();
   }
 
@@ -180,6 +192,22 @@ public final class Role implements Comparable {
     return pattern;
   }
 
+  /**
+   * Get the shape of the pattern.
+   *
+   * @return The classification of the pattern
+   */
+  @NonNull
+  PatternClassification getPatternClassification() {
+    PatternClassification classification = patternClassification;
+    if (classification == null) {
+      // roles loaded from the configuration are not constructed
+      classification = PatternClassification.of(pattern);
+      patternClassification = classification;
+    }
+    return classification;
+  }
+
   /**
    * Getter for the {@link Permission}s set.
    *
@@ -196,6 +224,7 @@ public final class Role implements Comparable {
    */
   private synchronized void setPermissions(Set<Permission> permissions) {
     this.permissions = new HashSet<>(permissions);
+    permissionMask = PermissionMask.of(this.permissions);
     cachedHashCode = _hashCode();
   }
 
@@ -263,7 +292,39 @@ public final class Role implements Comparable {
    * @return True if the role holds any of the given {@link Permission}s
    */
   public Boolean hasAnyPermission(Set<Permission> permissions) {
-    return CollectionUtils.containsAny(this.permissions, permissions);
+    PermissionMask mask = getPermissionMask();
+    for (Permission permission : permissions) {
+      if (mask.contains(permission)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks if the role holds any of the {@link Permission}s of the given mask.
+   *
+   * @param permissions A {@link PermissionMask}
+   * @return True if the role holds any of the given {@link Permission}s
+   */
+  @Restricted(NoExternalUse.class)
+  public boolean hasAnyPermission(PermissionMask permissions) {
+    return getPermissionMask().intersects(permissions);
+  }
+
+  /**
+   * Get the {@link Permission}s hold by the role as a bitmask.
+   *
+   * @return the permission mask
+   */
+  @Restricted(NoExternalUse.class)
+  public PermissionMask getPermissionMask() {
+    PermissionMask mask = permissionMask;
+    if (mask == null) {
+      mask = PermissionMask.of(permissions);
+      permissionMask = mask;
+    }
+    return mask;
   }
 
   /**
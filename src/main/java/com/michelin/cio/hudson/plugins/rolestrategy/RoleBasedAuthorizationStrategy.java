@@ -47,6 +47,8 @@ import hudson.init.Initializer;
 import hudson.model.AbstractItem;
 import hudson.model.Computer;
 import hudson.model.Descriptor;
+import hudson.model.Item;
+import hudson.model.ItemGroup;
 import hudson.model.Job;
 import hudson.model.Node;
 import hudson.security.ACL;
@@ -80,7 +82,9 @@ import java.util.stream.Collectors;
 import jenkins.model.Jenkins;
 import jenkins.util.SystemProperties;
 import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
+import net.sf.json.util.JSONBuilder;
 import org.acegisecurity.acls.sid.PrincipalSid;
 import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.plugins.rolestrategy.AmbiguousSidsAdminMonitor;
@@ -96,6 +100,7 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
 import org.kohsuke.stapler.verb.GET;
 import org.kohsuke.stapler.verb.POST;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
 
 /**
  * Role-based authorization strategy.
@@ -114,11 +119,26 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
   public static final String MACRO_ROLE = "roleMacros";
   public static final String MACRO_USER = "userMacros";
 
+  /**
+   * Number of entries returned by the paginated API methods when no limit is given.
+   */
+  private static final int DEFAULT_PAGE_SIZE = 100;
+
+  /**
+   * Maximum number of entries returned by the paginated API methods.
+   */
+  private static final int MAX_PAGE_SIZE = 1000;
+
   private final RoleMap agentRoles;
   private final RoleMap globalRoles;
   private final RoleMap itemRoles;
   private Map<String, PermissionTemplate> permissionTemplates;
 
+  /**
+   * Generation of the permission templates, changes with each modification. See {@link RoleMap#getGeneration()}.
+   */
+  private transient volatile long templatesGeneration = RoleMap.nextGeneration();
+
   private static final boolean USE_ITEM_AND_AGENT_ROLES = SystemProperties.getBoolean(
             RoleBasedAuthorizationStrategy.class.getName() + ".useItemAndAgentRoles", false);
 
@@ -130,6 +150,7 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     globalRoles = new RoleMap();
     itemRoles = new RoleMap();
     permissionTemplates = new TreeMap<>();
+    pinExistingAgents();
   }
 
   /**
@@ -165,6 +186,18 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     map = grantedRoles.get(PROJECT);
     itemRoles = map == null ? new RoleMap() : map;
     refreshPermissionsFromTemplate();
+    pinExistingAgents();
+  }
+
+  /**
+   * Pin the matching agent roles of the existing agents when the strategy is set up while Jenkins is running. At
+   * startup, the strategy is loaded before the agents, which are pinned by {@link AgentRoleMapListener#init()}.
+   */
+  private void pinExistingAgents() {
+    Jenkins jenkins = Jenkins.getInstanceOrNull();
+    if (jenkins != null && jenkins.getInitLevel() == InitMilestone.COMPLETED) {
+      AgentRoleMapListener.pinAgents(agentRoles);
+    }
   }
 
   public static final PermissionGroup GROUP =
@@ -210,6 +243,11 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
         role.refreshPermissionsFromTemplate(permissionTemplates.get(role.getTemplateName()));
       }
     }
+    PermissionDecisionCache.invalidate();
+  }
+
+  private void templatesModified() {
+    templatesGeneration = RoleMap.nextGeneration();
   }
 
   /**
@@ -220,6 +258,10 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
   @Override
   @NonNull
   public SidACL getRootACL() {
+    RequestAclMemo memo = RequestAclMemo.current();
+    if (memo != null) {
+      return memo.getRootACL(this, () -> globalRoles.getACL(RoleType.Global, null));
+    }
     return globalRoles.getACL(RoleType.Global, null);
   }
 
@@ -260,19 +302,101 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
   @Override
   @NonNull
   public ACL getACL(@NonNull AbstractItem project) {
+    RequestAclMemo memo = RequestAclMemo.current();
+    if (memo != null) {
+      return memo.getACL(this, RoleType.Project, project.getFullName(), () -> buildACL(project));
+    }
+    return buildACL(project);
+  }
+
+  private ACL buildACL(AbstractItem project) {
     return itemRoles.newMatchingRoleMap(project.getFullName()).getACL(RoleType.Project, project).newInheritingACL(getRootACL());
   }
 
   @Override
   @NonNull
   public ACL getACL(@NonNull Computer computer) {
-    return agentRoles.newMatchingRoleMap(computer.getName()).getACL(RoleType.Slave, computer).newInheritingACL(getRootACL());
+    RequestAclMemo memo = RequestAclMemo.current();
+    if (memo != null) {
+      return memo.getACL(this, RoleType.Slave, computer.getName(),
+          () -> getAgentRoleMap(computer.getName()).getACL(RoleType.Slave, computer).newInheritingACL(getRootACL()));
+    }
+    return getAgentRoleMap(computer.getName()).getACL(RoleType.Slave, computer).newInheritingACL(getRootACL());
   }
 
   @Override
   @NonNull
   public ACL getACL(@NonNull Node node) {
-    return agentRoles.newMatchingRoleMap(node.getNodeName()).getACL(RoleType.Slave, node).newInheritingACL(getRootACL());
+    return getAgentRoleMap(node.getNodeName()).getACL(RoleType.Slave, node).newInheritingACL(getRootACL());
+  }
+
+  /**
+   * Get the agent roles matching an agent. The matching roles of existing agents are kept until the agent is removed,
+   * see {@link AgentRoleMapListener}, so that agents don't compete with each other in the cache of matching roles.
+   *
+   * @param name The name of the agent
+   * @return The matching agent roles
+   */
+  private RoleMap getAgentRoleMap(String name) {
+    RoleMap matching = agentRoles.getPinnedMatchingRoleMap(name);
+    return matching != null ? matching : agentRoles.newMatchingRoleMap(name);
+  }
+
+  /**
+   * Filters the items on which the authentication has the given permission.
+   *
+   * <p>Equivalent to calling {@code item.hasPermission2(a, permission)} for each item, but the roles granting the
+   * permission to the authentication are only looked up once, then each item name is only matched against the
+   * patterns of these roles. Items which aren't {@link AbstractItem}s, or whose ACL may depend on something else than
+   * their name, are checked one by one.
+   *
+   * @param a The authentication
+   * @param permission The permission
+   * @param items The items to filter
+   * @param <I> The type of the items
+   * @return The items on which the permission is granted, in iteration order
+   * @since TBD
+   */
+  @Restricted(NoExternalUse.class)
+  @NonNull
+  public <I extends Item> List<I> filterPermitted(@NonNull Authentication a, @NonNull Permission permission,
+      @NonNull Collection<? extends I> items) {
+    if (getRootACL().hasPermission2(a, permission)) {
+      return new ArrayList<>(items);
+    }
+    List<I> permitted = new ArrayList<>();
+    RolePatternMatcher matcher = Jenkins.get().getAuthorizationStrategy() == this
+        ? itemRoles.getGrantingRoleMatcher(a, permission) : null;
+    if (matcher == null) {
+      for (I item : items) {
+        if (item.hasPermission2(a, permission)) {
+          permitted.add(item);
+        }
+      }
+      return permitted;
+    }
+    boolean checkParent = (permission == Item.READ || permission == Item.DISCOVER) && RoleMap.shouldCheckParentPermissions();
+    Authentication current = Jenkins.getAuthentication2();
+    Map<String, Boolean> parents = new HashMap<>();
+    for (I item : items) {
+      if (!(item instanceof AbstractItem)) {
+        if (item.hasPermission2(a, permission)) {
+          permitted.add(item);
+        }
+        continue;
+      }
+      if (!matcher.matchesAny(item.getFullName())) {
+        continue;
+      }
+      // like the ACL of the item, READ and DISCOVER are also checked on the parent with the current authentication
+      ItemGroup<?> parent = item.getParent();
+      if (checkParent && parent instanceof Item && !parents.computeIfAbsent(((Item) parent).getFullName(),
+          name -> ((Item) parent).hasPermission2(current, permission))) {
+        continue;
+      }
+      permitted.add(item);
+    }
+    return permitted;
   }
 
   /**
@@ -450,7 +574,7 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     instance().checkAnyPermission(permission);
   }
 
-  private static boolean hasPermissionByRoleTypeForUpdates(String roleTypeAsString) {
+  static boolean hasPermissionByRoleTypeForUpdates(String roleTypeAsString) {
     switch (roleTypeAsString) {
       case RoleBasedAuthorizationStrategy.GLOBAL:
         return instance().hasPermission(Jenkins.ADMINISTER);
@@ -517,13 +641,17 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     List<String> permissionList = Arrays.asList(permissionIds.split(","));
     Set<Permission> permissionSet = PermissionHelper.fromStrings(permissionList, true);
     PermissionTemplate template = new PermissionTemplate(permissionSet, name);
-    if (!overwrite && hasPermissionTemplate(name)) {
-      Stapler.getCurrentResponse2().sendError(HttpServletResponse.SC_BAD_REQUEST, "A template with name " + name + " already exists.");
-      return;
+    // the templates are only modified while holding the lock of the strategy, see doBulk
+    synchronized (this) {
+      if (!overwrite && hasPermissionTemplate(name)) {
+        Stapler.getCurrentResponse2().sendError(HttpServletResponse.SC_BAD_REQUEST, "A template with name " + name + " already exists.");
+        return;
+      }
+      permissionTemplates.put(name, template);
+      refreshPermissionsFromTemplate();
+      templatesModified();
+      persistChanges();
     }
-    permissionTemplates.put(name, template);
-    refreshPermissionsFromTemplate();
-    persistChanges();
   }
 
   /**
@@ -542,20 +670,23 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
                                 @QueryParameter(required = false) boolean force) throws IOException {
     checkPermByRoleTypeForUpdates(PROJECT);
     String[] split = names.split(",");
-    for (String templateName : split) {
-      templateName = templateName.trim();
-      PermissionTemplate pt = getPermissionTemplate(templateName);
-      if (pt != null && (!pt.isUsed() || force)) {
-        permissionTemplates.remove(templateName);
-        RoleMap roleMap = getRoleMap(RoleType.Project);
-        for (Role role : roleMap.getRoles()) {
-          if (templateName.equals(role.getTemplateName())) {
-            role.setTemplateName(null);
+    synchronized (this) {
+      for (String templateName : split) {
+        templateName = templateName.trim();
+        PermissionTemplate pt = getPermissionTemplate(templateName);
+        if (pt != null && (!pt.isUsed() || force)) {
+          permissionTemplates.remove(templateName);
+          RoleMap roleMap = getRoleMap(RoleType.Project);
+          for (Role role : roleMap.getRoles()) {
+            if (templateName.equals(role.getTemplateName())) {
+              role.setTemplateName(null);
+            }
           }
+          templatesModified();
         }
       }
+      persistChanges();
     }
-    persistChanges();
   }
 
   /**
@@ -615,14 +746,15 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     }
 
     RoleType roleType = RoleType.fromString(type);
+    RoleMap roleMap = getRoleMap(roleType);
+    RoleMap.Batch batch = roleMap.batch();
     if (overwriteb) {
-      RoleMap roleMap = getRoleMap(roleType);
       Role role2 = roleMap.getRole(roleName);
       if (role2 != null) {
-        roleMap.removeRole(role2);
+        batch.removeRole(role2);
       }
     }
-    addRole(roleType, role);
+    batch.addRole(role).commit();
     persistChanges();
   }
 
@@ -645,13 +777,15 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     checkPermByRoleTypeForUpdates(type);
 
     RoleMap roleMap = getRoleMap(RoleType.fromString(type));
+    RoleMap.Batch batch = roleMap.batch();
     String[] split = roleNames.split(",");
     for (String roleName : split) {
       Role role = roleMap.getRole(roleName);
       if (role != null) {
-        roleMap.removeRole(role);
+        batch.removeRole(role);
       }
     }
+    batch.commit();
     persistChanges();
   }
 
@@ -894,6 +1028,88 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     persistChanges();
   }
 
+  /**
+   * API method to apply a list of modifications at once, saving the configuration a single time.
+   *
+   * <p>The body of the request is a JSON object with a list of {@code operations}. Each operation has an {@code op}
+   * and the parameters of the corresponding API method:
+   * <ul>
+   *   <li>{@code addRole}: {@code type}, {@code roleName}, {@code permissionIds}, {@code overwrite}, {@code pattern},
+   *   {@code template}</li>
+   *   <li>{@code removeRole}: {@code type}, {@code roleName}</li>
+   *   <li>{@code assignRole}, {@code unassignRole}: {@code type}, {@code roleName}, {@code sid}, {@code sidType}</li>
+   *   <li>{@code deleteSid}: {@code type}, {@code sid}, {@code sidType}</li>
+   *   <li>{@code addTemplate}: {@code name}, {@code permissionIds}, {@code overwrite}</li>
+   * </ul>
+   * {@code sidType} is one of {@code USER}, {@code GROUP} or {@code EITHER}. Unlike the other API methods, adding a
+   * role which already exists without {@code overwrite}, or removing, assigning or unassigning a role which doesn't
+   * exist, is an error.
+   *
+   * <p>The operations are validated in order, before anything is modified. If any of them is invalid, or isn't allowed
+   * to the current user, none is applied and the request fails with status <code>400</code>, or <code>403</code>.
+   * The operations are validated without blocking the readers of the roles, and applied only if the roles they have
+   * been validated against haven't been modified in between; otherwise they are validated again. The templates can't
+   * be modified in between, as they are only modified while holding the lock of the strategy.
+   *
+   * <p>
+   * Example: {@code curl -X POST localhost:8080/role-strategy/strategy/bulk -H 'Content-Type: application/json' --data
+   * '{"operations":[{"op":"assignRole","type":"projectRoles","roleName":"dev","sid":"alice","sidType":"USER"}]}'}
+   *
+   * <p>
+   * Returns the result of each operation: {@code ok}, {@code error} with a message, or {@code skipped}.<br>
+   * Example:
+   *
+   * <pre>{@code
+   *   {"applied":true,"results":[{"index":0,"op":"assignRole","status":"ok"}]}
+   * }</pre>
+   *
+   * @param req the request
+   * @throws IOException in case saving changes fails
+   * @since TBD
+   */
+  @RequirePOST
+  @Restricted(NoExternalUse.class)
+  public void doBulk(StaplerRequest2 req) throws IOException {
+    checkPerms(ITEM_ROLES_ADMIN, AGENT_ROLES_ADMIN);
+    StaplerResponse2 response = Stapler.getCurrentResponse2();
+    JSONArray operations;
+    try {
+      operations = JSONObject.fromObject(req.getReader().lines().collect(Collectors.joining("\n"))).getJSONArray("operations");
+    } catch (JSONException e) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected a JSON object with a list of operations");
+      return;
+    }
+
+    BulkUpdate update;
+    synchronized (this) {
+      do {
+        update = new BulkUpdate(this, permissionTemplates);
+        for (Object operation : operations) {
+          update.add(operation);
+        }
+      } while (update.isValid() && !update.commit());
+      if (update.isValid()) {
+        if (!update.getAddedTemplates().isEmpty()) {
+          permissionTemplates.putAll(update.getAddedTemplates());
+          refreshPermissionsFromTemplate();
+          templatesModified();
+        }
+        persistChanges();
+      }
+    }
+    if (!update.isValid()) {
+      response.setStatus(update.isDenied() ? HttpServletResponse.SC_FORBIDDEN : HttpServletResponse.SC_BAD_REQUEST);
+    }
+
+    JSONObject responseJson = new JSONObject();
+    responseJson.put("applied", update.isValid());
+    responseJson.put("results", update.getResults());
+    response.setContentType("application/json;charset=UTF-8");
+    Writer writer = response.getWriter();
+    responseJson.write(writer);
+    writer.close();
+  }
+
   /**
    * API method to get the granted permissions of a template and if the template is used.
    *
@@ -921,6 +1137,10 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
   @Restricted(NoExternalUse.class)
   public void doGetTemplate(@QueryParameter(required = true) String name) throws IOException {
     checkPermByRoleTypeForReading(PROJECT);
+    // whether the template is used depends on the project roles
+    if (isNotModified(templatesGeneration, itemRoles.getGeneration())) {
+      return;
+    }
     JSONObject responseJson = new JSONObject();
 
     PermissionTemplate template = permissionTemplates.get(name);
@@ -976,8 +1196,12 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
   public void doGetRole(@QueryParameter(required = true) String type,
       @QueryParameter(required = true) String roleName) throws IOException {
     checkPermByRoleTypeForReading(type);
-    JSONObject responseJson = new JSONObject();
     RoleMap roleMap = getRoleMap(RoleType.fromString(type));
+    // the permissions of the project roles depend on the templates
+    if (isNotModified(roleMap.getGeneration(), templatesGeneration)) {
+      return;
+    }
+    JSONObject responseJson = new JSONObject();
     Role role = roleMap.getRole(roleName);
     if (role != null) {
       Set<Permission> permissions = role.getPermissions();
@@ -1031,15 +1255,22 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     }
     checkPermByRoleTypeForReading(type);
     RoleMap roleMap = getRoleMap(RoleType.fromString(type));
-
-    JSONObject responseJson = new JSONObject();
-    for (Map.Entry<Role, Set<PermissionEntry>> grantedRole : roleMap.getGrantedRolesEntries().entrySet()) {
-      responseJson.put(grantedRole.getKey().getName(), grantedRole.getValue());
+    if (isNotModified(roleMap.getGeneration())) {
+      return;
     }
 
+    // stream the roles, there may be tens of thousands of assignments
     Stapler.getCurrentResponse2().setContentType("application/json;charset=UTF-8");
     Writer writer = Stapler.getCurrentResponse2().getWriter();
-    responseJson.write(writer);
+    JSONBuilder json = new JSONBuilder(writer).object();
+    for (Map.Entry<Role, Set<PermissionEntry>> grantedRole : roleMap.getGrantedRolesEntries().entrySet()) {
+      json.key(grantedRole.getKey().getName()).array();
+      for (PermissionEntry entry : grantedRole.getValue()) {
+        json.object().key("sid").value(entry.getSid()).key("type").value(entry.getType().toString()).endObject();
+      }
+      json.endArray();
+    }
+    json.endObject();
     writer.close();
   }
 
@@ -1080,29 +1311,252 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     }
     checkPermByRoleTypeForReading(type);
 
-    Set<PermissionEntry> sidEntries = getRoleMap(RoleType.fromString(type)).getSidEntries(true);
-
-    JSONArray responseJson = new JSONArray();
-    for (PermissionEntry entry : sidEntries) {
-      JSONObject userEntry = new JSONObject();
-      userEntry.put("name", entry.getSid());
-      userEntry.put("type", entry.getType().toString());
-      JSONArray roles = new JSONArray();
-      SortedMap<Role, Set<PermissionEntry>> rolesEntries = getGrantedRolesEntries(type);
-      for (Map.Entry<Role, Set<PermissionEntry>> roleEntry : rolesEntries.entrySet()) {
-        if (roleEntry.getValue().contains(entry)) {
-          roles.add(roleEntry.getKey().getName());
-        }
-      }
-      userEntry.put("roles", roles);
-      responseJson.add(userEntry);
+    RoleMap roleMap = getRoleMap(RoleType.fromString(type));
+    if (isNotModified(roleMap.getGeneration())) {
+      return;
     }
+
+    // stream the assignments, there may be tens of thousands of them
     Stapler.getCurrentResponse2().setContentType("application/json;charset=UTF-8");
     Writer writer = Stapler.getCurrentResponse2().getWriter();
-    responseJson.write(writer);
+    JSONBuilder json = new JSONBuilder(writer).array();
+    for (Map.Entry<PermissionEntry, List<String>> entry : roleMap.getRoleNamesBySidEntry().entrySet()) {
+      PermissionEntry sid = entry.getKey();
+      json.object().key("name").value(sid.getSid()).key("type").value(sid.getType().toString()).key("roles").array();
+      for (String roleName : entry.getValue()) {
+        json.value(roleName);
+      }
+      json.endArray().endObject();
+    }
+    json.endArray();
     writer.close();
   }
 
+  /**
+   * API method to get a page of the roles of a roletype and the SIDs assigned to them.
+   *
+   * <p>
+   * Example: {@code curl -X GET 'localhost:8080/role-strategy/strategy/queryRoles?type=projectRoles&roleName=team-*&limit=50'}
+   *
+   * <p>
+   * Returns a json with the roles sorted by name. When the page is full, {@code nextCursor} is the {@code cursor} of the
+   * next page.<br>
+   * Example:
+   *
+   * <pre>{@code
+   *   {
+   *     "roles": [
+   *       {"name": "team-a", "pattern": "team-a/.*", "sids": [{"sid":"user1","type":"USER"}]},
+   *       {"name": "team-b", "pattern": "team-b/.*", "sids": [{"sid":"group1","type":"GROUP"}]}
+   *     ],
+   *     "nextCursor": "team-b"
+   *   }
+   * }</pre>
+   *
+   * @param type      (globalRoles by default, projectRoles, slaveRoles)
+   * @param limit     maximum number of roles, 100 by default and at most 1000
+   * @param cursor    {@code nextCursor} of the previous page
+   * @param roleName  only return the roles whose name matches this glob, {@code *} matching any characters and {@code ?}
+   *                  a single character
+   * @param sidPrefix only return the SIDs starting with this prefix, and the roles they are assigned to
+   * @param sidType   only return the SIDs of this type (USER, GROUP, EITHER), and the roles they are assigned to
+   * @throws IOException in case writing the response fails
+   * @since TBD
+   */
+  @GET
+  @Restricted(NoExternalUse.class)
+  public void doQueryRoles(@QueryParameter(fixEmpty = true) String type,
+      @QueryParameter int limit,
+      @QueryParameter(fixEmpty = true) String cursor,
+      @QueryParameter(fixEmpty = true) String roleName,
+      @QueryParameter(fixEmpty = true) String sidPrefix,
+      @QueryParameter(fixEmpty = true) String sidType) throws IOException {
+    if (type == null) {
+      type = RoleType.Global.getStringType();
+    }
+    checkPermByRoleTypeForReading(type);
+    StaplerResponse2 response = Stapler.getCurrentResponse2();
+    AuthorizationType authorizationType = null;
+    if (sidType != null) {
+      authorizationType = parseAuthorizationType(sidType);
+      if (authorizationType == null) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown SID type " + sidType);
+        return;
+      }
+    }
+    RoleMap roleMap = getRoleMap(RoleType.fromString(type));
+    if (isNotModified(roleMap.getGeneration())) {
+      return;
+    }
+    int pageSize = getPageSize(limit);
+    SortedMap<Role, Set<PermissionEntry>> page = roleMap.getGrantedRolesPage(cursor, roleName, sidPrefix, authorizationType, pageSize);
+
+    response.setContentType("application/json;charset=UTF-8");
+    Writer writer = response.getWriter();
+    JSONBuilder json = new JSONBuilder(writer).object().key("roles").array();
+    for (Map.Entry<Role, Set<PermissionEntry>> grantedRole : page.entrySet()) {
+      Role role = grantedRole.getKey();
+      json.object().key("name").value(role.getName());
+      if (!type.equals(RoleBasedAuthorizationStrategy.GLOBAL)) {
+        json.key("pattern").value(role.getPattern().pattern());
+      }
+      json.key("sids").array();
+      for (PermissionEntry entry : grantedRole.getValue()) {
+        json.object().key("sid").value(entry.getSid()).key("type").value(entry.getType().toString()).endObject();
+      }
+      json.endArray().endObject();
+    }
+    json.endArray();
+    if (page.size() == pageSize) {
+      json.key("nextCursor").value(page.lastKey().getName());
+    }
+    json.endObject();
+    writer.close();
+  }
+
+  /**
+   * API method to get a page of the SIDs of a roletype and the roles assigned to them.
+   *
+   * <p>
+   * Example: {@code curl -X GET 'localhost:8080/role-strategy/strategy/queryRoleAssignments?type=projectRoles&sidPrefix=dev&sidType=GROUP'}
+   *
+   * <p>
+   * Returns a json with the SIDs sorted by name and then by type. When the page is full, {@code nextCursor} is the
+   * {@code cursor} of the next page.<br>
+   * Example:
+   *
+   * <pre>{@code
+   *   {
+   *     "assignments": [
+   *       {"name": "dev-a", "type": "GROUP", "roles": ["team-a"]},
+   *       {"name": "dev-b", "type": "GROUP", "roles": ["team-a", "team-b"]}
+   *     ],
+   *     "nextCursor": "GROUP:dev-b"
+   *   }
+   * }</pre>
+   *
+   * @param type      (globalRoles by default, projectRoles, slaveRoles)
+   * @param limit     maximum number of SIDs, 100 by default and at most 1000
+   * @param cursor    {@code nextCursor} of the previous page
+   * @param sidPrefix only return the SIDs starting with this prefix
+   * @param sidType   only return the SIDs of this type (USER, GROUP, EITHER)
+   * @param roleName  only return the roles whose name matches this glob, {@code *} matching any characters and {@code ?}
+   *                  a single character, and the SIDs assigned to them
+   * @throws IOException in case writing the response fails
+   * @since TBD
+   */
+  @GET
+  @Restricted(NoExternalUse.class)
+  public void doQueryRoleAssignments(@QueryParameter(fixEmpty = true) String type,
+      @QueryParameter int limit,
+      @QueryParameter(fixEmpty = true) String cursor,
+      @QueryParameter(fixEmpty = true) String sidPrefix,
+      @QueryParameter(fixEmpty = true) String sidType,
+      @QueryParameter(fixEmpty = true) String roleName) throws IOException {
+    if (type == null) {
+      type = RoleType.Global.getStringType();
+    }
+    checkPermByRoleTypeForReading(type);
+    StaplerResponse2 response = Stapler.getCurrentResponse2();
+    AuthorizationType authorizationType = null;
+    if (sidType != null) {
+      authorizationType = parseAuthorizationType(sidType);
+      if (authorizationType == null) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown SID type " + sidType);
+        return;
+      }
+    }
+    PermissionEntry after = null;
+    if (cursor != null) {
+      after = PermissionEntry.fromString(cursor);
+      if (after == null) {
+        response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid cursor " + cursor);
+        return;
+      }
+    }
+    RoleMap roleMap = getRoleMap(RoleType.fromString(type));
+    if (isNotModified(roleMap.getGeneration())) {
+      return;
+    }
+    int pageSize = getPageSize(limit);
+    Map<PermissionEntry, List<String>> page = roleMap.getRoleNamesBySidEntryPage(after, sidPrefix, authorizationType, roleName, pageSize);
+
+    response.setContentType("application/json;charset=UTF-8");
+    Writer writer = response.getWriter();
+    JSONBuilder json = new JSONBuilder(writer).object().key("assignments").array();
+    PermissionEntry last = null;
+    for (Map.Entry<PermissionEntry, List<String>> entry : page.entrySet()) {
+      last = entry.getKey();
+      json.object().key("name").value(last.getSid()).key("type").value(last.getType().toString()).key("roles").array();
+      for (String name : entry.getValue()) {
+        json.value(name);
+      }
+      json.endArray().endObject();
+    }
+    json.endArray();
+    if (last != null && page.size() == pageSize) {
+      json.key("nextCursor").value(last.getType() + ":" + last.getSid());
+    }
+    json.endObject();
+    writer.close();
+  }
+
+  @CheckForNull
+  static AuthorizationType parseAuthorizationType(@NonNull String sidType) {
+    try {
+      return AuthorizationType.valueOf(sidType);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static int getPageSize(int limit) {
+    return limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+  }
+
+  /**
+   * Sets the ETag of the response to the generations of the returned data, and answers {@code 304 Not Modified} when
+   * the client already has this version.
+   *
+   * @param generations the generations of the returned data, see {@link RoleMap#getGeneration()}
+   * @return true if the response has been sent, and nothing must be written
+   */
+  private static boolean isNotModified(long... generations) {
+    StringBuilder etag = new StringBuilder("\"");
+    for (int i = 0; i < generations.length; i++) {
+      if (i > 0) {
+        etag.append('-');
+      }
+      etag.append(Long.toHexString(generations[i]));
+    }
+    etag.append('"');
+    StaplerResponse2 response = Stapler.getCurrentResponse2();
+    response.setHeader("ETag", etag.toString());
+    String ifNoneMatch = Stapler.getCurrentRequest2().getHeader("If-None-Match");
+    if (ifNoneMatch != null && matchesEtag(ifNoneMatch, etag.toString())) {
+      response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether the value of an {@code If-None-Match} header matches an ETag. As for all conditional GET requests,
+   * weak ETags match their strong counterparts.
+   */
+  private static boolean matchesEtag(@NonNull String ifNoneMatch, @NonNull String etag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals("*") || candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * API method to get a list of items matching a pattern.
    *
@@ -1294,6 +1748,7 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
         if (reader.getNodeName().equals("roleMap")) {
           String type = reader.getAttribute("type");
           RoleMap map = new RoleMap();
+          RoleMap.Batch batch = map.batch();
           while (reader.hasMoreChildren()) {
             reader.moveDown();
             String name = reader.getAttribute("name");
@@ -1317,7 +1772,7 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
             }
 
             Role role = new Role(name, Pattern.compile(pattern), permissions, "", templateName);
-            map.addRole(role);
+            batch.addRole(role);
 
             next = ((ExtendedHierarchicalStreamReader) reader).peekNextChild();
             if (next != null && next.equals("assignedSIDs")) {
@@ -1337,13 +1792,14 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
                   }
                 }
                 PermissionEntry pe = new PermissionEntry(authType, sid);
-                map.assignRole(role, pe);
+                batch.assignRole(role, pe);
                 reader.moveUp();
               }
               reader.moveUp();
             }
             reader.moveUp();
           }
+          batch.commit();
           roleMaps.put(type, map);
         }
 
@@ -1455,7 +1911,8 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
           RoleMap roleMap = map.getValue();
           JSONArray userEntries = json.getJSONArray(map.getKey().getStringType());
 
-          roleMap.clearSids();
+          // replace all the assignments at once, so that users never lose their permissions while saving
+          RoleMap.Batch batch = roleMap.batch().clearSids();
 
           userEntries.forEach(e -> {
             JSONObject entry = (JSONObject) e;
@@ -1463,10 +1920,11 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
             entry.getJSONArray("roles").forEach(r -> {
               Role role = roleMap.getRole((String) r);
               if (role != null) {
-                roleMap.assignRole(role, pe);
+                batch.assignRole(role, pe);
               }
             });
           });
+          batch.commit();
         }
         // Persist the data
         persistChanges();
@@ -1501,9 +1959,12 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
           permissionTemplates.put(templateName, permissionTemplate);
         }
 
-        strategy.permissionTemplates = permissionTemplates;
-        strategy.refreshPermissionsFromTemplate();
-        persistChanges();
+        synchronized (strategy) {
+          strategy.permissionTemplates = permissionTemplates;
+          strategy.refreshPermissionsFromTemplate();
+          strategy.templatesModified();
+          persistChanges();
+        }
       }
     }
 
@@ -1545,15 +2006,17 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
     private void copyRolesFromOldStrategy(final RoleType roleType, RoleBasedAuthorizationStrategy targetStrategy,
         RoleBasedAuthorizationStrategy oldStrategy) {
       RoleMap roleMap = oldStrategy.getRoleMap(roleType);
+      RoleMap.Batch batch = targetStrategy.getRoleMap(roleType).batch();
       for (Role role : roleMap.getRoles()) {
-        targetStrategy.addRole(roleType, role);
+        batch.addRole(role);
         Set<PermissionEntry> sids = roleMap.getSidEntriesForRole(role.getName());
         if (sids != null) {
           for (PermissionEntry sid : sids) {
-            targetStrategy.assignRole(roleType, role, sid);
+            batch.assignRole(role, sid);
           }
         }
       }
+      batch.commit();
     }
 
     private void readRoles(JSONObject formData, final RoleType roleType, RoleBasedAuthorizationStrategy targetStrategy,
@@ -1579,6 +2042,7 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
       LOGGER.fine("Saving roles for " + roleTypeAsString);
       // Continue processing the roles
       RoleMap roleMap = oldStrategy.getRoleMap(roleType);
+      RoleMap.Batch batch = targetStrategy.getRoleMap(roleType).batch();
 
       for (Map.Entry<String, JSONObject> r : (Set<Map.Entry<String, JSONObject>>) roles.getJSONObject("data").entrySet()) {
         String pattern = ".*";
@@ -1603,15 +2067,16 @@ public class RoleBasedAuthorizationStrategy extends AuthorizationStrategy {
         }
         String roleName = r.getKey();
         Role role = new Role(roleName, Pattern.compile(pattern), permissions, "", templateName);
-        targetStrategy.addRole(roleType, role);
+        batch.addRole(role);
 
         Set<PermissionEntry> sids = roleMap.getSidEntriesForRole(roleName);
         if (sids != null) {
           for (PermissionEntry sid : sids) {
-            targetStrategy.assignRole(roleType, role, sid);
+            batch.assignRole(role, sid);
           }
         }
       }
+      batch.commit();
     }
 
     /**
@@ -26,26 +26,32 @@ package com.michelin.cio.hudson.plugins.rolestrategy;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.synopsys.arc.jenkins.plugins.rolestrategy.IMacroExtension;
-import com.synopsys.arc.jenkins.plugins.rolestrategy.Macro;
-import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleMacroExtension;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleMapSnapshot.Assignment;
 import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import hudson.Util;
+import hudson.model.Computer;
 import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Node;
 import hudson.model.User;
+import hudson.security.ACL;
 import hudson.security.AccessControlled;
 import hudson.security.AuthorizationStrategy;
 import hudson.security.Permission;
 import hudson.security.SecurityRealm;
 import hudson.security.SidACL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,12 +59,14 @@ import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import jenkins.model.IdStrategy;
@@ -68,13 +76,13 @@ import org.acegisecurity.acls.sid.PrincipalSid;
 import org.acegisecurity.acls.sid.Sid;
 import org.jenkinsci.plugins.rolestrategy.RoleBasedProjectNamingStrategy;
 import org.jenkinsci.plugins.rolestrategy.Settings;
-import org.jenkinsci.plugins.rolestrategy.permissions.PermissionHelper;
+import org.jenkinsci.plugins.rolestrategy.permissions.ImplyingPermissions;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
 import org.kohsuke.accmod.Restricted;
 import org.kohsuke.accmod.restrictions.NoExternalUse;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 /**
@@ -91,30 +99,74 @@ public class RoleMap {
 
   /**
    * Map associating each {@link Role} with the concerned {@link User}s/groups.
+   * Only accessed while holding the lock of the {@link RoleMap}, readers use the {@link #snapshot}.
    */
   private final SortedMap<Role, Set<PermissionEntry>> grantedRoles;
 
-  private static final Logger LOGGER = Logger.getLogger(RoleMap.class.getName());
+  /**
+   * Immutable copy of {@link #grantedRoles} used by all the read operations. Modifications reset it and the next read
+   * builds a new one.
+   */
+  private volatile RoleMapSnapshot snapshot;
 
-  private static final Cache<Permission, Set<Permission>> implyingPermissionCache = Caffeine.newBuilder().maximumSize(100)
-      .expireAfterWrite(20, TimeUnit.SECONDS).build();
+  /**
+   * Number of modifications, used to version the roles and their assignments. Guarded by the lock.
+   */
+  private long modificationCount;
 
-  static {
-    Permission.getAll().forEach(RoleMap::cacheImplyingPermissions);
-  }
+  /**
+   * Value of {@link #modificationCount} when roles were last added. Guarded by the lock.
+   */
+  private long rolesVersion;
 
-  private final Cache<String, UserDetails> cache = Caffeine.newBuilder().maximumSize(Settings.USER_DETAILS_CACHE_MAX_SIZE)
-      .expireAfterWrite(Settings.USER_DETAILS_CACHE_EXPIRATION_TIME_SEC, TimeUnit.SECONDS).build();
+  /**
+   * Value of {@link #modificationCount} when the assignments of each role last changed, by role name.
+   * Guarded by the lock.
+   */
+  private final Map<String, Long> roleVersions = new HashMap<>();
+
+  /**
+   * Source of the {@link #getGeneration() generations}. Seeded with the time, so that generations keep increasing
+   * across restarts.
+   */
+  private static final AtomicLong generations = new AtomicLong(System.currentTimeMillis() << 20);
+
+  /**
+   * Generation of the roles and assignments, changes with each modification.
+   */
+  private volatile long generation = nextGeneration();
+
+  private static final Logger LOGGER = Logger.getLogger(RoleMap.class.getName());
 
   /**
    * {@link RoleMap}s are created again and again using {@link RoleMap#newMatchingRoleMap(String)} for different
    * permissions for the same {@code itemNamePrefix}, so cache them and avoid wasting time matching regular expressions.
+   * {@code null} for matching {@link RoleMap}s, which don't cache their own matching role maps.
    */
-  private final Cache<String, RoleMap> matchingRoleMapCache = Caffeine.newBuilder().maximumSize(2048).expireAfterWrite(1, TimeUnit.HOURS)
-      .build();
+  @CheckForNull
+  private final MatchingRoleMapCache matchingRoleMapCache;
+
+  /**
+   * Whether this is a read-only view returned by {@link #newMatchingRoleMap(String)}.
+   */
+  private final boolean readOnly;
 
   RoleMap() {
-    this.grantedRoles = new ConcurrentSkipListMap<>();
+    this.grantedRoles = new TreeMap<>();
+    this.matchingRoleMapCache = new MatchingRoleMapCache();
+    this.readOnly = false;
+  }
+
+  /**
+   * Create a read-only view of some roles of a {@link RoleMap}. The view shares the assignments of its parent.
+   *
+   * @param view The snapshot of the parent, restricted to the visible roles
+   */
+  private RoleMap(RoleMapSnapshot view) {
+    this.grantedRoles = Collections.emptySortedMap();
+    this.snapshot = view;
+    this.matchingRoleMapCache = null;
+    this.readOnly = true;
   }
 
   /**
@@ -126,7 +178,7 @@ public class RoleMap {
   public RoleMap(@NonNull SortedMap<Role, Set<PermissionEntry>> grantedRoles) {
     this();
     for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
-      this.grantedRoles.put(entry.getKey(), new HashSet<>(entry.getValue()));
+      this.grantedRoles.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
     }
   }
 
@@ -137,137 +189,140 @@ public class RoleMap {
    */
   @Restricted(NoExternalUse.class)
   public boolean hasPermission(PermissionEntry sid, Permission permission, RoleType roleType, AccessControlled controlledItem) {
-    final Set<Permission> permissions = getImplyingPermissions(permission);
-    final boolean[] hasPermission = { false };
-    final SecurityRealm securityRealm = Jenkins.get().getSecurityRealm();
-    final boolean principal = sid.getType() == AuthorizationType.USER;
-    final IdStrategy strategy = principal ? securityRealm.getUserIdStrategy() : securityRealm.getGroupIdStrategy();
+    return hasPermission(sid.getSid(), sid.getType(), permission, roleType, controlledItem);
+  }
 
-    // Walk through the roles, and only add the roles having the given permission,
+  /**
+   * Check if the given sid has the provided {@link Permission}.
+   * Does not allocate unless a macro or the user authorities need to be evaluated, as this is called for each sid of
+   * each permission check.
+   *
+   * @param sid The sid to check
+   * @param type {@link AuthorizationType#USER} to check a user, any other type to check a group
+   * @return True if the sid's granted permission
+   */
+  private boolean hasPermission(String sid, AuthorizationType type, Permission permission, RoleType roleType,
+      AccessControlled controlledItem) {
+    final boolean principal = type == AuthorizationType.USER;
+    final RoleMapSnapshot roles = getSnapshot();
+    // Unless case-sensitivity is forced, sids are compared with the IdStrategy of the security realm
+    final SecurityRealm securityRealm = FORCE_CASE_SENSITIVE ? null : Jenkins.get().getSecurityRealm();
+    final boolean checkUserAuthorities = Settings.TREAT_USER_AUTHORITIES_AS_ROLES && principal;
+    // Most groups of a user are assigned to no role, reject them before anything else
+    if (!checkUserAuthorities && !roles.mayBeAssigned(sid, principal, securityRealm)) {
+      return false;
+    }
+    final PermissionMask permissions = getImplyingPermissions(permission);
+    // Item.CREATE without item is checked for every "New Item" page and every item creation: it only depends on whether
+    // the sid is assigned to a role having the permission, which is precomputed
+    if (permission == Item.CREATE && controlledItem == null && !checkUserAuthorities) {
+      return roles.isGrantedAnywhere(sid, principal, securityRealm, permissions, PermissionDecisionCache.getGeneration());
+    }
+    final Assignment[] assignments = roles.getAssignments(sid, principal, securityRealm);
+
+    // Only visit the roles the sid is assigned to, and only consider the roles having the given permission,
     // or a permission implying the given permission
-    new RoleWalker() {
-
-      /**
-       * Checks whether the given sid is granted permission.
-       * First checks if there is a dedicated match for user/group.
-       * If not checks if there is an entry for either.
-       *
-       * @param current The current role
-       * @param entry The permission entry to check
-       * @return The PermissionEntry that matched or null if nothing matched.
-       */
-      @CheckForNull
-      private PermissionEntry hasPermission(Role current, PermissionEntry entry) {
-        Set<PermissionEntry> entries = grantedRoles.get(current);
-        if (entries.contains(entry)) {
-          return entry;
-        }
-        PermissionEntry eitherEntry = new PermissionEntry(AuthorizationType.EITHER, entry.getSid());
-        if (entries.contains(eitherEntry)) {
-          return eitherEntry;
-        }
-        if (!FORCE_CASE_SENSITIVE) {
-          for (PermissionEntry pe : entries) {
-            if (pe.isApplicable(principal) && strategy.equals(pe.getSid(), entry.getSid())) {
-              return pe;
-            }
-          }
-        }
-        return null;
+    int from = 0;
+    while (from < assignments.length) {
+      Role current = assignments[from].role;
+      int to = from + 1;
+      while (to < assignments.length && assignments[to].role == current) {
+        to++;
       }
-
-      @Override
-      public void perform(Role current) {
-        if (current.hasAnyPermission(permissions)) {
-          PermissionEntry entry = hasPermission(current, sid);
-          if (entry != null) {
-            // Handle roles macro
-            if (Macro.isMacro(current)) {
-              Macro macro = RoleMacroExtension.getMacro(current.getName());
-              if (controlledItem != null && macro != null) {
-                RoleMacroExtension macroExtension = RoleMacroExtension.getMacroExtension(macro.getName());
-                if (macroExtension.IsApplicable(roleType)) {
-                  if (Util.isOverridden(IMacroExtension.class, macroExtension.getClass(), "hasPermission", PermissionEntry.class,
-                      Permission.class, RoleType.class, AccessControlled.class, Macro.class)) {
-                    if (macroExtension.hasPermission(entry, permission, roleType, controlledItem, macro)) {
-                      hasPermission[0] = true;
-                      abort();
-                    }
-                  } else {
-                    if (macroExtension.hasPermission(entry.getSid(), permission, roleType, controlledItem, macro)) {
-                      hasPermission[0] = true;
-                      abort();
-                    }
-                  }
-                }
-              }
-            } else {
-              hasPermission[0] = true;
-              abort();
-            }
-          } else if (Settings.TREAT_USER_AUTHORITIES_AS_ROLES && sid.getType() == AuthorizationType.USER) {
-            try {
-              UserDetails userDetails = cache.getIfPresent(sid.getSid());
-              if (userDetails == null) {
-                userDetails = Jenkins.get().getSecurityRealm().loadUserByUsername2(sid.getSid());
-                cache.put(sid.getSid(), userDetails);
-              }
-              for (GrantedAuthority grantedAuthority : userDetails.getAuthorities()) {
-                if (grantedAuthority.getAuthority().equals(current.getName())) {
-                  hasPermission[0] = true;
-                  abort();
-                  return;
-                }
-              }
-            } catch (RuntimeException ex) {
-              // There maybe issues in the logic, which lead to IllegalStateException in Acegi
-              // Security (JENKINS-35652)
-              // So we want to ensure this method does not fail horribly in such case
-              LOGGER.log(Level.WARNING, "Unhandled exception during user authorities processing", ex);
-            }
-          }
-        }
+      if (roles.isVisible(assignments[from]) && current.hasAnyPermission(permissions)
+          && isGranted(roles, assignments[from], findEntry(assignments, from, to, sid, type), permission, roleType, controlledItem)) {
+        return true;
       }
-    };
-    return hasPermission[0];
+      from = to;
+    }
+    if (checkUserAuthorities) {
+      return hasPermissionFromUserAuthorities(roles, sid, permissions, assignments);
+    }
+    return false;
   }
 
   /**
-   * Get the set of permissions which imply the permission {@code p}.
+   * Chooses the entry used to evaluate a role among the assignments of the sid to the role.
+   * First checks if there is a dedicated match for user/group.
+   * If not checks if there is an entry for either, then falls back to an entry matching according to the
+   * {@link IdStrategy}.
    *
-   * @param p find permissions that imply this permission
-   * @return set of permissions which imply {@code p}
+   * @param assignments The assignments of the sid
+   * @param from Index of the first assignment to the role
+   * @param to Index after the last assignment to the role
+   * @param sid The sid to check
+   * @param type The type of the sid to check
+   * @return The PermissionEntry that matched
    */
-  private static Set<Permission> getImplyingPermissions(Permission p) {
-    return implyingPermissionCache.get(p, RoleMap::cacheImplyingPermissions);
+  @NonNull
+  private static PermissionEntry findEntry(Assignment[] assignments, int from, int to, String sid, AuthorizationType type) {
+    PermissionEntry eitherEntry = null;
+    for (int i = from; i < to; i++) {
+      PermissionEntry pe = assignments[i].entry;
+      if (pe.getSid().equals(sid)) {
+        if (pe.getType() == type) {
+          return pe;
+        }
+        if (eitherEntry == null && pe.getType() == AuthorizationType.EITHER) {
+          eitherEntry = pe;
+        }
+      }
+    }
+    return eitherEntry != null ? eitherEntry : assignments[from].entry;
   }
 
   /**
-   * Finds the implying permissions and caches them for future use.
-   *
-   * @param permission the permission for which to cache implying permissions
-   * @return a set of permissions that imply this permission (including itself)
+   * Checks whether a role assigned to the given entry grants the permission, evaluating the role macro if needed.
    */
-  private static Set<Permission> cacheImplyingPermissions(Permission permission) {
-    Set<Permission> implyingPermissions;
-    if (PermissionHelper.isDangerous(permission)) {
-      /*
-       * if this is a dangerous permission, fall back to Administer unless we're in compat mode
-       */
-      implyingPermissions = getImplyingPermissions(Jenkins.ADMINISTER);
-    } else {
-      implyingPermissions = new HashSet<>();
+  private static boolean isGranted(RoleMapSnapshot roles, Assignment assignment, PermissionEntry entry, Permission permission,
+      RoleType roleType, AccessControlled controlledItem) {
+    if (roles.isMacro(assignment.roleIndex)) {
+      return controlledItem != null
+          && roles.getMacroEvaluator(assignment.roleIndex).hasPermission(entry, permission, roleType, controlledItem);
+    }
+    return true;
+  }
 
-      // Get the implying permissions
-      for (Permission p = permission; p != null; p = p.impliedBy) {
-        if (!p.getEnabled()) {
-          continue;
+  /**
+   * Checks whether one of the authorities of the user matches the name of a role having the permission.
+   * Roles the user is assigned to have already been checked by the caller and are skipped.
+   */
+  private boolean hasPermissionFromUserAuthorities(RoleMapSnapshot roles, String sid, PermissionMask permissions,
+      Assignment[] assignments) {
+    try {
+      for (String authority : UserAuthoritiesCache.getAuthorities(sid)) {
+        Role current = roles.getRole(authority);
+        if (current != null && current.hasAnyPermission(permissions) && !isAssigned(assignments, current)) {
+          return true;
         }
-        implyingPermissions.add(p);
+      }
+    } catch (RuntimeException ex) {
+      // There maybe issues in the logic, which lead to IllegalStateException in Acegi
+      // Security (JENKINS-35652)
+      // So we want to ensure this method does not fail horribly in such case
+      LOGGER.log(Level.WARNING, "Unhandled exception during user authorities processing", ex);
+    }
+    return false;
+  }
+
+  private static boolean isAssigned(Assignment[] assignments, Role role) {
+    for (Assignment assignment : assignments) {
+      if (assignment.role == role) {
+        return true;
       }
     }
+    return false;
+  }
 
-    return implyingPermissions;
+  /**
+   * Get the mask of permissions which imply the permission {@code p}.
+   * Dangerous permissions are implied by the permissions implying {@link Jenkins#ADMINISTER}.
+   *
+   * @param p find permissions that imply this permission
+   * @return mask of permissions which imply {@code p}
+   */
+  private static PermissionMask getImplyingPermissions(Permission p) {
+    return ImplyingPermissions.of(p);
   }
 
   /**
@@ -277,7 +332,7 @@ public class RoleMap {
    * @return {@code true} if the {@link RoleMap} contains the given role
    */
   public boolean hasRole(@NonNull Role role) {
-    return this.grantedRoles.containsKey(role);
+    return getSnapshot().getSidEntries(role) != null;
   }
 
   /**
@@ -295,10 +350,11 @@ public class RoleMap {
    *
    * @param role The {@link Role} to add
    */
-  public void addRole(Role role) {
-    if (this.getRole(role.getName()) == null) {
-      this.grantedRoles.put(role, new CopyOnWriteArraySet<>());
-      matchingRoleMapCache.invalidateAll();
+  public synchronized void addRole(Role role) {
+    checkWritable();
+    if (!this.grantedRoles.containsKey(role)) {
+      this.grantedRoles.put(role, new LinkedHashSet<>());
+      invalidate();
     }
   }
 
@@ -309,9 +365,10 @@ public class RoleMap {
    * @param role The {@link Role} to add
    * @param sids The sids associated with the {@link Role}
    */
-  public void addRole(Role role, Set<PermissionEntry> sids) {
-    this.grantedRoles.put(role, new CopyOnWriteArraySet<>(sids));
-    matchingRoleMapCache.invalidateAll();
+  public synchronized void addRole(Role role, Set<PermissionEntry> sids) {
+    checkWritable();
+    this.grantedRoles.put(role, new LinkedHashSet<>(sids));
+    invalidate();
   }
 
   /**
@@ -320,10 +377,11 @@ public class RoleMap {
    * @param role The {@link Role} to assign the sid to
    * @param sid  The sid to assign
    */
-  public void assignRole(Role role, PermissionEntry sid) {
-    if (this.hasRole(role)) {
-      this.grantedRoles.get(role).add(sid);
-      matchingRoleMapCache.invalidateAll();
+  public synchronized void assignRole(Role role, PermissionEntry sid) {
+    checkWritable();
+    Set<PermissionEntry> sids = this.grantedRoles.get(role);
+    if (sids != null && sids.add(sid)) {
+      invalidate(role);
     }
   }
 
@@ -338,10 +396,7 @@ public class RoleMap {
    */
   @Deprecated
   public void assignRole(Role role, String sid) {
-    if (this.hasRole(role)) {
-      this.grantedRoles.get(role).add(new PermissionEntry(AuthorizationType.EITHER, sid));
-      matchingRoleMapCache.invalidateAll();
-    }
+    assignRole(role, new PermissionEntry(AuthorizationType.EITHER, sid));
   }
 
   /**
@@ -350,11 +405,11 @@ public class RoleMap {
    * @param role The {@link Role} to unassign the sid to
    * @param sid  The sid to unassign
    */
-  public void unAssignRole(Role role, PermissionEntry sid) {
+  public synchronized void unAssignRole(Role role, PermissionEntry sid) {
+    checkWritable();
     Set<PermissionEntry> sids = grantedRoles.get(role);
-    if (sids != null) {
-      sids.remove(sid);
-      matchingRoleMapCache.invalidateAll();
+    if (sids != null && sids.remove(sid)) {
+      invalidate(role);
     }
   }
 
@@ -369,11 +424,7 @@ public class RoleMap {
    */
   @Deprecated
   public void unAssignRole(Role role, String sid) {
-    Set<PermissionEntry> sids = grantedRoles.get(role);
-    if (sids != null) {
-      sids.remove(new PermissionEntry(AuthorizationType.EITHER, sid));
-      matchingRoleMapCache.invalidateAll();
-    }
+    unAssignRole(role, new PermissionEntry(AuthorizationType.EITHER, sid));
   }
 
   /**
@@ -381,10 +432,12 @@ public class RoleMap {
    *
    * @param role The {@link Role} for which you want to clear the sids
    */
-  public void clearSidsForRole(Role role) {
-    if (this.hasRole(role)) {
-      this.grantedRoles.get(role).clear();
-      matchingRoleMapCache.invalidateAll();
+  public synchronized void clearSidsForRole(Role role) {
+    checkWritable();
+    Set<PermissionEntry> sids = this.grantedRoles.get(role);
+    if (sids != null && !sids.isEmpty()) {
+      sids.clear();
+      invalidate(role);
     }
   }
 
@@ -393,12 +446,14 @@ public class RoleMap {
    *
    * @param sid The sid for which you want to clear the {@link Role}s
    */
-  public void deleteSids(PermissionEntry sid) {
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
-      Set<PermissionEntry> sids = entry.getValue();
-      sids.remove(sid);
+  public synchronized void deleteSids(PermissionEntry sid) {
+    checkWritable();
+    for (Role role : getSnapshot().getRolesForSid(sid.getSid())) {
+      Set<PermissionEntry> sids = grantedRoles.get(role);
+      if (sids != null && sids.remove(sid)) {
+        invalidate(role);
+      }
     }
-    matchingRoleMapCache.invalidateAll();
   }
 
   /**
@@ -411,11 +466,7 @@ public class RoleMap {
    */
   @Deprecated
   public void deleteSids(String sid) {
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
-      Set<PermissionEntry> sids = entry.getValue();
-      sids.remove(new PermissionEntry(AuthorizationType.EITHER, sid));
-    }
-    matchingRoleMapCache.invalidateAll();
+    deleteSids(new PermissionEntry(AuthorizationType.EITHER, sid));
   }
 
   /**
@@ -426,12 +477,9 @@ public class RoleMap {
    * @since 2.6.0
    */
   public void deleteRoleSid(PermissionEntry sid, String rolename) {
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
-      Role role = entry.getKey();
-      if (role.getName().equals(rolename)) {
-        unAssignRole(role, sid);
-        break;
-      }
+    Role role = getRole(rolename);
+    if (role != null) {
+      unAssignRole(role, sid);
     }
   }
 
@@ -447,24 +495,18 @@ public class RoleMap {
    */
   @Deprecated
   public void deleteRoleSid(String sid, String rolename) {
-    PermissionEntry sidEntry = new PermissionEntry(AuthorizationType.EITHER, sid);
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
-      Role role = entry.getKey();
-      if (role.getName().equals(rolename)) {
-        unAssignRole(role, sidEntry);
-        break;
-      }
-    }
+    deleteRoleSid(new PermissionEntry(AuthorizationType.EITHER, sid), rolename);
   }
 
   /**
    * Clear all the sids for each {@link Role} of the {@link RoleMap}.
    */
-  public void clearSids() {
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : this.grantedRoles.entrySet()) {
-      Role role = entry.getKey();
-      this.clearSidsForRole(role);
+  public synchronized void clearSids() {
+    checkWritable();
+    for (Set<PermissionEntry> sids : this.grantedRoles.values()) {
+      sids.clear();
     }
+    invalidate();
   }
 
   /**
@@ -475,12 +517,7 @@ public class RoleMap {
    */
   @CheckForNull
   public Role getRole(String name) {
-    for (Role role : this.getRoles()) {
-      if (role.getName().equals(name)) {
-        return role;
-      }
-    }
-    return null;
+    return getSnapshot().getRole(name);
   }
 
   /**
@@ -488,9 +525,319 @@ public class RoleMap {
    *
    * @param role The {@link Role} which shall be removed
    */
-  public void removeRole(Role role) {
-    this.grantedRoles.remove(role);
-    matchingRoleMapCache.invalidateAll();
+  public synchronized void removeRole(Role role) {
+    checkWritable();
+    if (this.grantedRoles.remove(role) != null) {
+      // removing a role doesn't change which roles match an item name, only the matching role maps containing it
+      invalidate(role);
+    }
+  }
+
+  /**
+   * Start a batch of modifications of this {@link RoleMap}.
+   * The modifications are staged and only applied by {@link Batch#commit()}, all at once, so that readers never see
+   * part of them, and the snapshot and the matching role maps are built again only once for the whole batch.
+   *
+   * @return an empty batch
+   * @since TBD
+   */
+  @NonNull
+  public Batch batch() {
+    checkWritable();
+    return new Batch();
+  }
+
+  /**
+   * Modifications of a {@link RoleMap}, applied together by {@link #commit()}. Created by {@link RoleMap#batch()}.
+   * Each method behaves like the method of the {@link RoleMap} with the same name, applied when committing, in the
+   * order the modifications have been staged.
+   *
+   * @since TBD
+   */
+  public final class Batch {
+    private final List<Runnable> operations = new ArrayList<>();
+
+    /**
+     * Names of the roles whose assignments changed, or which have been removed, while applying the operations.
+     */
+    private final Set<String> modifiedRoles = new HashSet<>();
+
+    /**
+     * Whether roles have been added while applying the operations.
+     */
+    private boolean rolesAdded;
+
+    private Batch() {
+    }
+
+    /**
+     * Add a role, if there is no role with the same name.
+     *
+     * @param role The {@link Role} to add
+     * @return this batch
+     */
+    @NonNull
+    public Batch addRole(@NonNull Role role) {
+      operations.add(() -> {
+        if (!grantedRoles.containsKey(role)) {
+          grantedRoles.put(role, new LinkedHashSet<>());
+          rolesAdded = true;
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Add a role and assign the sids to it, replacing the role with the same name.
+     *
+     * @param role The {@link Role} to add
+     * @param sids The sids associated with the {@link Role}
+     * @return this batch
+     */
+    @NonNull
+    public Batch addRole(@NonNull Role role, @NonNull Set<PermissionEntry> sids) {
+      Set<PermissionEntry> copy = new LinkedHashSet<>(sids);
+      operations.add(() -> {
+        grantedRoles.put(role, copy);
+        rolesAdded = true;
+      });
+      return this;
+    }
+
+    /**
+     * Remove a role.
+     *
+     * @param role The {@link Role} to remove
+     * @return this batch
+     */
+    @NonNull
+    public Batch removeRole(@NonNull Role role) {
+      operations.add(() -> {
+        if (grantedRoles.remove(role) != null) {
+          modifiedRoles.add(role.getName());
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Assign a sid to a role. Ignored if the role doesn't exist when the batch is committed.
+     *
+     * @param role The {@link Role} to assign the sid to
+     * @param sid  The sid to assign
+     * @return this batch
+     */
+    @NonNull
+    public Batch assignRole(@NonNull Role role, @NonNull PermissionEntry sid) {
+      operations.add(() -> {
+        Set<PermissionEntry> sids = grantedRoles.get(role);
+        if (sids != null && sids.add(sid)) {
+          modifiedRoles.add(role.getName());
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Unassign a sid from a role.
+     *
+     * @param role The {@link Role} to unassign the sid from
+     * @param sid  The sid to unassign
+     * @return this batch
+     */
+    @NonNull
+    public Batch unAssignRole(@NonNull Role role, @NonNull PermissionEntry sid) {
+      operations.add(() -> {
+        Set<PermissionEntry> sids = grantedRoles.get(role);
+        if (sids != null && sids.remove(sid)) {
+          modifiedRoles.add(role.getName());
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Unassign a sid from all the roles.
+     *
+     * @param sid The sid to unassign
+     * @return this batch
+     */
+    @NonNull
+    public Batch deleteSids(@NonNull PermissionEntry sid) {
+      operations.add(() -> {
+        for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
+          if (entry.getValue().remove(sid)) {
+            modifiedRoles.add(entry.getKey().getName());
+          }
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Unassign all the sids of a role.
+     *
+     * @param role The {@link Role} for which you want to clear the sids
+     * @return this batch
+     */
+    @NonNull
+    public Batch clearSidsForRole(@NonNull Role role) {
+      operations.add(() -> {
+        Set<PermissionEntry> sids = grantedRoles.get(role);
+        if (sids != null && !sids.isEmpty()) {
+          sids.clear();
+          modifiedRoles.add(role.getName());
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Unassign all the sids of all the roles.
+     *
+     * @return this batch
+     */
+    @NonNull
+    public Batch clearSids() {
+      operations.add(() -> {
+        for (Map.Entry<Role, Set<PermissionEntry>> entry : grantedRoles.entrySet()) {
+          if (!entry.getValue().isEmpty()) {
+            entry.getValue().clear();
+            modifiedRoles.add(entry.getKey().getName());
+          }
+        }
+      });
+      return this;
+    }
+
+    /**
+     * Apply the staged modifications and publish them at once, with the new snapshot of the roles: the readers keep
+     * using the previous snapshot until then, and never wait for the commit. The batch is empty afterwards and can be
+     * reused.
+     */
+    public void commit() {
+      synchronized (RoleMap.this) {
+        try {
+          for (Runnable operation : operations) {
+            operation.run();
+          }
+        } finally {
+          if (rolesAdded || !modifiedRoles.isEmpty()) {
+            publish(modifiedRoles, rolesAdded);
+          }
+          operations.clear();
+          modifiedRoles.clear();
+          rolesAdded = false;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the current snapshot of the roles, building it if the {@link RoleMap} has been modified since the last read.
+   *
+   * @return The snapshot
+   */
+  private RoleMapSnapshot getSnapshot() {
+    RoleMapSnapshot current = snapshot;
+    if (current == null) {
+      synchronized (this) {
+        current = snapshot;
+        if (current == null) {
+          current = publishSnapshot();
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Build the snapshot of the current roles and publish it.
+   * Must be called while holding the lock.
+   *
+   * @return The snapshot
+   */
+  private RoleMapSnapshot publishSnapshot() {
+    RoleMapSnapshot current = new RoleMapSnapshot(grantedRoles, rolesVersion, roleVersions);
+    snapshot = current;
+    rebaseMatchingRoleMaps(current);
+    return current;
+  }
+
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException("Matching role maps are read-only");
+    }
+  }
+
+  /**
+   * Get the generation of the roles and assignments of this {@link RoleMap}. It increases with each modification and is
+   * never shared by two {@link RoleMap}s, so it can be used to know whether the {@link RoleMap} has been modified or
+   * replaced, e.g. as the ETag of the REST API responses.
+   *
+   * @return the generation
+   * @since TBD
+   */
+  @Restricted(NoExternalUse.class)
+  public long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Get a new generation, greater than all the generations returned before.
+   *
+   * @return the generation
+   */
+  static long nextGeneration() {
+    return generations.incrementAndGet();
+  }
+
+  /**
+   * Discards the snapshot after a modification of the set of roles. All the cached matching {@link RoleMap}s are
+   * matched again on their next use.
+   * Must be called while holding the lock.
+   */
+  private void invalidate() {
+    rolesVersion = ++modificationCount;
+    snapshot = null;
+    generation = nextGeneration();
+    PermissionDecisionCache.invalidate();
+  }
+
+  /**
+   * Discards the snapshot after a modification of the assignments of a role, or its removal. Only the cached matching
+   * {@link RoleMap}s containing the role are built again on their next use.
+   * Must be called while holding the lock.
+   *
+   * @param role the modified role
+   */
+  private void invalidate(Role role) {
+    roleVersions.put(role.getName(), ++modificationCount);
+    snapshot = null;
+    generation = nextGeneration();
+    PermissionDecisionCache.invalidate();
+  }
+
+  /**
+   * Replaces the snapshot after a {@link Batch} of modifications. The snapshot is published before the generation, so
+   * that a reader getting the new generation also gets the new roles.
+   * Must be called while holding the lock.
+   *
+   * @param modifiedRoles the names of the roles whose assignments changed, or which have been removed
+   * @param rolesAdded whether roles have been added, in which case all the cached matching {@link RoleMap}s are matched
+   *     again
+   */
+  private void publish(Set<String> modifiedRoles, boolean rolesAdded) {
+    long version = ++modificationCount;
+    for (String name : modifiedRoles) {
+      roleVersions.put(name, version);
+    }
+    if (rolesAdded) {
+      rolesVersion = version;
+    }
+    publishSnapshot();
+    generation = nextGeneration();
+    PermissionDecisionCache.invalidate();
   }
 
   /**
@@ -499,7 +846,7 @@ public class RoleMap {
    * @return An unmodifiable sorted map containing the {@link Role}s and their associated sids
    */
   public SortedMap<Role, Set<PermissionEntry>> getGrantedRolesEntries() {
-    return Collections.unmodifiableSortedMap(this.grantedRoles);
+    return getSnapshot().getGrantedRoles();
   }
 
   /**
@@ -512,7 +859,7 @@ public class RoleMap {
   @Deprecated
   public SortedMap<Role, Set<String>> getGrantedRoles() {
     SortedMap<Role, Set<String>> ret = new TreeMap<>();
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : this.grantedRoles.entrySet()) {
+    for (Map.Entry<Role, Set<PermissionEntry>> entry : getSnapshot().getGrantedRoles().entrySet()) {
       Set<String> allGrants = entry.getValue().stream().map(PermissionEntry::getSid).collect(Collectors.toSet());
       ret.put(entry.getKey(), allGrants);
     }
@@ -525,7 +872,7 @@ public class RoleMap {
    * @return An unmodifiable set containing the {@link Role}s
    */
   public Set<Role> getRoles() {
-    return Collections.unmodifiableSet(this.grantedRoles.keySet());
+    return getSnapshot().getGrantedRoles().keySet();
   }
 
   /**
@@ -555,6 +902,111 @@ public class RoleMap {
     return ret;
   }
 
+  /**
+   * Get the names of the {@link Role}s assigned to each sid, including the {@code Anonymous} sid.
+   * The index is built once after each modification of the {@link RoleMap}.
+   *
+   * @return An unmodifiable map of the sids and the names of their roles, sorted by role name
+   * @since TBD
+   */
+  @NonNull
+  @Restricted(NoExternalUse.class)
+  public SortedMap<PermissionEntry, List<String>> getRoleNamesBySidEntry() {
+    return getSnapshot().getRoleNamesBySid();
+  }
+
+  /**
+   * Get a page of the {@link Role}s and their assigned sids, sorted by role name.
+   *
+   * @param after Name of the last role of the previous page, {@code null} for the first page
+   * @param roleNameGlob Only return the roles whose name matches this glob, where {@code *} matches any characters and
+   *     {@code ?} matches a single character. {@code null} for all the roles.
+   * @param sidPrefix Only return the sids starting with this prefix, and the roles they are assigned to. {@code null}
+   *     for all the sids.
+   * @param sidType Only return the sids of this type, and the roles they are assigned to. {@code null} for all the
+   *     sids.
+   * @param limit Maximum number of roles
+   * @return An unmodifiable sorted map of the roles and their matching sids
+   * @since TBD
+   */
+  @NonNull
+  @Restricted(NoExternalUse.class)
+  public SortedMap<Role, Set<PermissionEntry>> getGrantedRolesPage(@CheckForNull String after, @CheckForNull String roleNameGlob,
+      @CheckForNull String sidPrefix, @CheckForNull AuthorizationType sidType, int limit) {
+    Predicate<PermissionEntry> sidFilter = null;
+    if (sidPrefix != null || sidType != null) {
+      sidFilter = sid -> (sidPrefix == null || sid.getSid().startsWith(sidPrefix)) && (sidType == null || sid.getType() == sidType);
+    }
+    Pattern glob = globToPattern(roleNameGlob);
+    return getSnapshot().getGrantedRolesPage(after, globPrefix(roleNameGlob), name -> glob.matcher(name).matches(), sidFilter,
+        limit);
+  }
+
+  /**
+   * Get a page of the sids and the names of the {@link Role}s assigned to them, sorted by sid and then by type.
+   *
+   * @param after Last sid of the previous page, {@code null} for the first page
+   * @param sidPrefix Only return the sids starting with this prefix. {@code null} for all the sids.
+   * @param sidType Only return the sids of this type. {@code null} for all the sids.
+   * @param roleNameGlob Only return the roles whose name matches this glob, and the sids assigned to them, where
+   *     {@code *} matches any characters and {@code ?} matches a single character. {@code null} for all the roles.
+   * @param limit Maximum number of sids
+   * @return An unmodifiable map of the sids and the names of their matching roles, in the order of the page
+   * @since TBD
+   */
+  @NonNull
+  @Restricted(NoExternalUse.class)
+  public Map<PermissionEntry, List<String>> getRoleNamesBySidEntryPage(@CheckForNull PermissionEntry after,
+      @CheckForNull String sidPrefix, @CheckForNull AuthorizationType sidType, @CheckForNull String roleNameGlob, int limit) {
+    Predicate<String> roleNameFilter = null;
+    if (roleNameGlob != null) {
+      Pattern glob = globToPattern(roleNameGlob);
+      roleNameFilter = name -> glob.matcher(name).matches();
+    }
+    return getSnapshot().getRoleNamesBySidPage(after, sidPrefix != null ? sidPrefix : "", sidType, roleNameFilter, limit);
+  }
+
+  /**
+   * Converts a glob, where {@code *} matches any characters and {@code ?} matches a single character, to a pattern.
+   */
+  private static Pattern globToPattern(@CheckForNull String glob) {
+    if (glob == null) {
+      return Pattern.compile(".*", Pattern.DOTALL);
+    }
+    StringBuilder regex = new StringBuilder();
+    int literalStart = 0;
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        if (literalStart < i) {
+          regex.append(Pattern.quote(glob.substring(literalStart, i)));
+        }
+        regex.append(c == '*' ? ".*" : ".");
+        literalStart = i + 1;
+      }
+    }
+    if (literalStart < glob.length()) {
+      regex.append(Pattern.quote(glob.substring(literalStart)));
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  /**
+   * Get the literal prefix of a glob, which all the matching names start with.
+   */
+  private static String globPrefix(@CheckForNull String glob) {
+    if (glob == null) {
+      return "";
+    }
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        return glob.substring(0, i);
+      }
+    }
+    return glob;
+  }
+
   /**
    * Get all the sids referenced in this {@link RoleMap}, minus the {@code Anonymous} sid.
    *
@@ -571,15 +1023,15 @@ public class RoleMap {
    * @return A sorted set containing all the sids
    */
   public SortedSet<PermissionEntry> getSidEntries(Boolean includeAnonymous) {
-    TreeSet<PermissionEntry> sids = new TreeSet<>();
-    for (Map.Entry<Role, Set<PermissionEntry>> entry : this.grantedRoles.entrySet()) {
-      sids.addAll(entry.getValue());
-    }
+    SortedSet<PermissionEntry> sids = getSnapshot().getSidEntries();
     // Remove the anonymous sid if asked to
-    if (!includeAnonymous) {
-      sids.remove(new PermissionEntry(AuthorizationType.USER, "anonymous"));
+    PermissionEntry anonymous = new PermissionEntry(AuthorizationType.USER, "anonymous");
+    if (!includeAnonymous && sids.contains(anonymous)) {
+      TreeSet<PermissionEntry> filtered = new TreeSet<>(sids);
+      filtered.remove(anonymous);
+      return Collections.unmodifiableSortedSet(filtered);
     }
-    return Collections.unmodifiableSortedSet(sids);
+    return sids;
   }
 
   /**
@@ -590,9 +1042,10 @@ public class RoleMap {
    */
   @CheckForNull
   public Set<PermissionEntry> getSidEntriesForRole(String roleName) {
-    Role role = this.getRole(roleName);
+    RoleMapSnapshot roles = getSnapshot();
+    Role role = roles.getRole(roleName);
     if (role != null) {
-      return Collections.unmodifiableSet(this.grantedRoles.get(role));
+      return roles.getSidEntries(role);
     }
     return null;
   }
@@ -608,9 +1061,10 @@ public class RoleMap {
   @CheckForNull
   @Deprecated
   public Set<String> getSidsForRole(String roleName) {
-    Role role = this.getRole(roleName);
+    RoleMapSnapshot roles = getSnapshot();
+    Role role = roles.getRole(roleName);
     if (role != null) {
-      Set<PermissionEntry> ret = this.grantedRoles.get(role);
+      Set<PermissionEntry> ret = roles.getSidEntries(role);
       return ret.stream().map(PermissionEntry::getSid).collect(Collectors.toSet());
     }
     return null;
@@ -647,20 +1101,37 @@ public class RoleMap {
   }
 
   private Set<String> getRolesForSidEntry(PermissionEntry entry) {
-
     Set<String> roleSet = new HashSet<>();
-    new RoleWalker() {
-      @Override
-      public void perform(Role current) {
-        if (grantedRoles.get(current).contains(entry)) {
-          roleSet.add(current.getName());
-        }
+    RoleMapSnapshot roles = getSnapshot();
+    for (Role current : roles.getRolesForSid(entry.getSid())) {
+      if (roles.getSidEntries(current).contains(entry)) {
+        roleSet.add(current.getName());
       }
-    };
-
+    }
     return roleSet;
   }
 
+  /**
+   * Get a matcher of the patterns of the roles granting the permission to the authentication, whatever the item.
+   * Used to check a permission on many items at once.
+   *
+   * @param a The authentication
+   * @param permission The permission
+   * @return The matcher, {@code null} if the decision may depend on something else than the item name, i.e. when
+   *     macros are used or user authorities are treated as roles
+   */
+  @CheckForNull
+  RolePatternMatcher getGrantingRoleMatcher(@NonNull Authentication a, @NonNull Permission permission) {
+    RoleMapSnapshot roles = getSnapshot();
+    if (roles.hasMacroRoles() || Settings.TREAT_USER_AUTHORITIES_AS_ROLES) {
+      return null;
+    }
+    GrantingRolesCollector collector = new GrantingRolesCollector(roles);
+    // visits all the sids of the authentication, the collector never takes a decision
+    collector.hasPermission2(a, permission);
+    return new RolePatternMatcher(collector.granting);
+  }
+
   /**
    * Create a sub-map of this {@link RoleMap} containing {@link Role}s that are applicable on the given
    * {@code itemNamePrefix}.
@@ -669,21 +1140,155 @@ public class RoleMap {
    * @return A {@link RoleMap} containing roles that are applicable on the itemNamePrefix
    */
   public RoleMap newMatchingRoleMap(String itemNamePrefix) {
-    return matchingRoleMapCache.get(itemNamePrefix, this::createMatchingRoleMap);
+    RoleMapSnapshot roles = getSnapshot();
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    if (matchingCache == null) {
+      return createMatchingRoleMap(itemNamePrefix, roles, null).roleMap;
+    }
+    MatchingRoleMap cached = matchingCache.cache.getIfPresent(itemNamePrefix);
+    if (cached != null && cached.isValid(roles)) {
+      cached.rebase(roles);
+      matchingCache.hits.increment();
+      return cached.roleMap;
+    }
+    matchingCache.misses.increment();
+    long start = System.nanoTime();
+    MatchingRoleMap matching = createMatchingRoleMap(itemNamePrefix, roles, cached);
+    matchingCache.loadTime.add(System.nanoTime() - start);
+    matchingCache.cache.put(itemNamePrefix, matching);
+    return matching.roleMap;
   }
 
-  private RoleMap createMatchingRoleMap(String itemNamePrefix) {
-    SortedMap<Role, Set<PermissionEntry>> roleMap = new TreeMap<>();
-    new RoleWalker() {
-      @Override
-      public void perform(Role current) {
-        Matcher m = current.getPattern().matcher(itemNamePrefix);
-        if (m.matches()) {
-          roleMap.put(current, grantedRoles.get(current));
-        }
+  /**
+   * Number of roles whose pattern is matched by {@link #newMatchingRoleMap(String)} without regular expression,
+   * because it is a literal name or a literal prefix.
+   *
+   * @return the number of roles
+   */
+  @Restricted(NoExternalUse.class)
+  public int getFastPathPatternCount() {
+    RolePatternMatcher matcher = getSnapshot().getPatternMatcher();
+    return matcher.getLiteralCount() + matcher.getPrefixCount();
+  }
+
+  /**
+   * Get the {@link RoleMap} of the roles matching a {@link #pinMatchingRoleMap(String) pinned} name.
+   * Pinned role maps don't count against the size of the cache of {@link #newMatchingRoleMap(String)}, they are kept
+   * until the name is unpinned. They are updated like the cached ones when roles are modified.
+   *
+   * @param name The pinned name
+   * @return A {@link RoleMap} containing roles that are applicable on the name, {@code null} if the name isn't pinned
+   */
+  @CheckForNull
+  RoleMap getPinnedMatchingRoleMap(String name) {
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    MatchingRoleMap pinned = matchingCache != null ? matchingCache.pinned.get(name) : null;
+    if (pinned == null) {
+      return null;
+    }
+    RoleMapSnapshot roles = getSnapshot();
+    if (pinned.isValid(roles)) {
+      pinned.rebase(roles);
+      return pinned.roleMap;
+    }
+    MatchingRoleMap updated = createMatchingRoleMap(name, roles, pinned);
+    // unless the name has been unpinned meanwhile
+    matchingCache.pinned.replace(name, pinned, updated);
+    return updated.roleMap;
+  }
+
+  /**
+   * Keep the {@link RoleMap} of the roles matching a name until {@link #unpinMatchingRoleMap(String)} is called, e.g.
+   * for agents which exist until they are removed.
+   *
+   * @param name The name
+   */
+  void pinMatchingRoleMap(String name) {
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    if (matchingCache != null) {
+      // outside of computeIfAbsent, a new snapshot rebases the pinned role maps
+      RoleMapSnapshot roles = getSnapshot();
+      matchingCache.pinned.computeIfAbsent(name, n -> createMatchingRoleMap(n, roles, null));
+    }
+  }
+
+  /**
+   * Drop the {@link RoleMap} of the roles matching a pinned name.
+   *
+   * @param name The name
+   */
+  void unpinMatchingRoleMap(String name) {
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    if (matchingCache != null) {
+      matchingCache.pinned.remove(name);
+    }
+  }
+
+  /**
+   * Build the {@link RoleMap} of the roles matching an item name.
+   *
+   * @param itemNamePrefix The item name
+   * @param roles The current snapshot
+   * @param stale A previous matching role map which is no longer up-to-date. If no roles have been added since it was
+   *     built, its roles are reused instead of matching the patterns again.
+   * @return The matching role map
+   */
+  private MatchingRoleMap createMatchingRoleMap(String itemNamePrefix, RoleMapSnapshot roles, @CheckForNull MatchingRoleMap stale) {
+    Collection<Role> matching = stale != null && stale.rolesVersion == roles.getRolesVersion()
+        ? Arrays.asList(stale.roles)
+        : roles.getPatternMatcher().getMatchingRoles(itemNamePrefix);
+    BitSet roleIndexes = new BitSet();
+    List<Role> visible = new ArrayList<>(matching.size());
+    for (Role role : matching) {
+      // the role may have been removed
+      if (roles.getSidEntries(role) != null) {
+        roleIndexes.set(roles.getRoleIndex(role));
+        visible.add(role);
+      }
+    }
+    return new MatchingRoleMap(new RoleMap(roles.view(roleIndexes)), roles, visible.toArray(new Role[0]));
+  }
+
+  /**
+   * Move the cached matching role maps which are still valid to a new snapshot, and release the others, so that they
+   * don't keep the previous snapshots reachable.
+   *
+   * @param current The new snapshot
+   */
+  private void rebaseMatchingRoleMaps(RoleMapSnapshot current) {
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    if (matchingCache != null) {
+      rebaseMatchingRoleMaps(matchingCache.cache.asMap(), current);
+      rebaseMatchingRoleMaps(matchingCache.pinned, current);
+    }
+  }
+
+  private static void rebaseMatchingRoleMaps(ConcurrentMap<String, MatchingRoleMap> matchingRoleMaps, RoleMapSnapshot current) {
+    for (Map.Entry<String, MatchingRoleMap> entry : matchingRoleMaps.entrySet()) {
+      MatchingRoleMap matching = entry.getValue();
+      if (matching.isValid(current)) {
+        matching.rebase(current);
+      } else {
+        // unless it has been rebuilt meanwhile
+        matchingRoleMaps.replace(entry.getKey(), matching, matching.release());
       }
-    };
-    return new RoleMap(roleMap);
+    }
+  }
+
+  /**
+   * Statistics of the cache of the {@link RoleMap}s returned by {@link #newMatchingRoleMap(String)}. Entries built
+   * from roles which have been modified since count as misses.
+   *
+   * @return The statistics
+   */
+  @Restricted(NoExternalUse.class)
+  public CacheStats getMatchingRoleMapCacheStats() {
+    MatchingRoleMapCache matchingCache = matchingRoleMapCache;
+    if (matchingCache == null) {
+      return CacheStats.empty();
+    }
+    long misses = matchingCache.misses.sum();
+    return CacheStats.of(matchingCache.hits.sum(), misses, misses, 0, matchingCache.loadTime.sum(), matchingCache.evictions.sum(), 0);
   }
 
   /**
@@ -783,6 +1388,168 @@ public class RoleMap {
       this.roleType = roleType;
     }
 
+    /**
+     * Checks if the authentication has the given permission, using the {@link PermissionDecisionCache} when the
+     * decision only depends on the roles, and the {@link RequestAclMemo} of the current request if any.
+     *
+     * @param a          The authentication to check
+     * @param permission The permission to check
+     * @return True if the authentication has the given permission
+     */
+    @Override
+    public boolean hasPermission2(@NonNull Authentication a, @NonNull Permission permission) {
+      String itemName = getItemName();
+      if (itemName == null || dependsOnCurrentAuthentication(a, permission)) {
+        return super.hasPermission2(a, permission);
+      }
+      RequestAclMemo memo = RequestAclMemo.current();
+      PermissionDecisionCache.Key key = PermissionDecisionCache.lookupKey(roleType, itemName, a, permission);
+      boolean cacheable = isCacheable(key, permission);
+      if (memo == null && !cacheable) {
+        return super.hasPermission2(a, permission);
+      }
+      Boolean cached = memo != null ? memo.getDecision(key, RoleMap.this) : null;
+      if (cached != null) {
+        return cached;
+      }
+      if (cacheable) {
+        cached = PermissionDecisionCache.get(key, RoleMap.this);
+        if (cached != null) {
+          if (memo != null) {
+            memo.putDecision(key.copy(), RoleMap.this, cached);
+          }
+          return cached;
+        }
+      }
+      // the lookup key is reused by the checks of the parent
+      key = key.copy();
+      // read the generation first, so that a decision computed during a modification is stale right away
+      long generation = PermissionDecisionCache.getGeneration();
+      boolean granted = super.hasPermission2(a, permission);
+      if (cacheable) {
+        PermissionDecisionCache.put(key, RoleMap.this, generation, granted);
+      }
+      if (memo != null) {
+        memo.putDecision(key, RoleMap.this, granted);
+      }
+      return granted;
+    }
+
+    /**
+     * Get the name identifying the controlled item in the {@link PermissionDecisionCache}.
+     *
+     * @return The name, {@code null} if decisions on this kind of object are not cached
+     */
+    @CheckForNull
+    private String getItemName() {
+      if (item == null) {
+        return "";
+      }
+      if (item instanceof Item) {
+        return ((Item) item).getFullName();
+      }
+      if (item instanceof Computer) {
+        return ((Computer) item).getName();
+      }
+      if (item instanceof Node) {
+        return ((Node) item).getNodeName();
+      }
+      return null;
+    }
+
+    /**
+     * Checks whether the decision only depends on the roles, the authentication and the permission.
+     */
+    private boolean isCacheable(PermissionDecisionCache.Key key, Permission permission) {
+      if (!PermissionDecisionCache.isEnabled() || key.isSystem() || Settings.TREAT_USER_AUTHORITIES_AS_ROLES) {
+        return false;
+      }
+      // Macros depend on the state of the item
+      if (getSnapshot().hasMacroRoles()) {
+        return false;
+      }
+      // READ and DISCOVER also include the decision on the parent, taken by all the global and item roles
+      if (checksParent(permission) && mayUseMacrosOnFolders(Jenkins.get().getAuthorizationStrategy())) {
+        return false;
+      }
+      // Item.CREATE on the root depends on the project naming strategy
+      return !(permission == Item.CREATE && item == null);
+    }
+
+    /**
+     * Checks whether the permission is also checked on the parent of the item, see {@link #hasPermission(Sid, Permission)}.
+     */
+    private boolean checksParent(Permission permission) {
+      return (permission == Item.READ || permission == Item.DISCOVER) && item instanceof Item
+          && ((Item) item).getParent() instanceof Item && shouldCheckParentPermissions();
+    }
+
+    /**
+     * Checks whether the decision depends on the authentication of the current thread: READ and DISCOVER are also
+     * checked on the parent, with the authentication of the current thread.
+     */
+    private boolean dependsOnCurrentAuthentication(Authentication a, Permission permission) {
+      return item instanceof Item && ((Item) item).getParent() instanceof Item
+          && (permission == Item.READ || permission == Item.DISCOVER) && !isCurrentAuthentication(a);
+    }
+
+    private boolean isCurrentAuthentication(Authentication a) {
+      Authentication current = Jenkins.getAuthentication2();
+      // tokens don't compare by identity first, and compare all their fields
+      return a == current || a.equals(current);
+    }
+
+    /**
+     * Checks if the authentication of the current thread has the given permission on the parent of the item. Every
+     * item of a folder checks the same ancestors, so the decisions are cached like the decisions of a single
+     * {@link RoleMap}, as long as they only depend on the roles.
+     *
+     * @param parent     The parent of the item
+     * @param permission The permission to check
+     * @return True if the permission is granted on the parent
+     */
+    private boolean hasPermissionOnParent(Item parent, Permission permission) {
+      Authentication a = Jenkins.getAuthentication2();
+      AuthorizationStrategy strategy = Jenkins.get().getAuthorizationStrategy();
+      if (!(strategy instanceof RoleBasedAuthorizationStrategy) || !isAncestorCacheable((RoleBasedAuthorizationStrategy) strategy, a)) {
+        return parent.hasPermission2(a, permission);
+      }
+      PermissionDecisionCache.Key key = PermissionDecisionCache.lookupKey(null, parent.getFullName(), a, permission);
+      Boolean cached = PermissionDecisionCache.get(key, strategy);
+      if (cached != null) {
+        return cached;
+      }
+      // the lookup key is reused by the checks of the ancestors
+      key = key.copy();
+      long generation = PermissionDecisionCache.getGeneration();
+      boolean granted = parent.hasPermission2(a, permission);
+      PermissionDecisionCache.put(key, strategy, generation, granted);
+      return granted;
+    }
+
+    /**
+     * Checks whether the decisions on the ancestors only depend on the roles, the authentication and the permission.
+     */
+    private boolean isAncestorCacheable(RoleBasedAuthorizationStrategy strategy, Authentication a) {
+      if (!PermissionDecisionCache.isEnabled() || a.equals(ACL.SYSTEM2) || Settings.TREAT_USER_AUTHORITIES_AS_ROLES) {
+        return false;
+      }
+      return !mayUseMacrosOnFolders(strategy);
+    }
+
+    /**
+     * Checks whether the decisions on folders may depend on macros, which depend on the state of the folder. Folders are
+     * controlled by the global and the item roles.
+     */
+    private boolean mayUseMacrosOnFolders(AuthorizationStrategy strategy) {
+      if (!(strategy instanceof RoleBasedAuthorizationStrategy)) {
+        return true;
+      }
+      RoleBasedAuthorizationStrategy rbas = (RoleBasedAuthorizationStrategy) strategy;
+      return rbas.getRoleMap(RoleType.Global).getSnapshot().hasMacroRoles()
+          || rbas.getRoleMap(RoleType.Project).getSnapshot().hasMacroRoles();
+    }
+
     /**
      * Checks if the sid has the given permission.
      * <p>
@@ -796,9 +1563,9 @@ public class RoleMap {
     @Override
     @CheckForNull
     protected Boolean hasPermission(Sid sid, Permission permission) {
-      boolean principal = sid instanceof PrincipalSid ? true : false;
-      PermissionEntry entry = new PermissionEntry(principal ? AuthorizationType.USER : AuthorizationType.GROUP, toString(sid));
-      if (RoleMap.this.hasPermission(entry, permission, roleType, item)) {
+      String name = toString(sid);
+      AuthorizationType type = sid instanceof PrincipalSid ? AuthorizationType.USER : AuthorizationType.GROUP;
+      if (RoleMap.this.hasPermission(name, type, permission, roleType, item)) {
         if (item instanceof Item) {
           final ItemGroup parent = ((Item) item).getParent();
           if (parent instanceof Item && (Item.DISCOVER.equals(permission) || Item.READ.equals(permission))
@@ -806,7 +1573,7 @@ public class RoleMap {
             // For READ and DISCOVER permission checks, do the same permission check on the
             // parent
             Permission requiredPermissionOnParent = permission == Item.DISCOVER ? Item.DISCOVER : Item.READ;
-            if (!((Item) parent).hasPermission(requiredPermissionOnParent)) {
+            if (!hasPermissionOnParent((Item) parent, requiredPermissionOnParent)) {
               return null;
             }
           }
@@ -823,7 +1590,7 @@ public class RoleMap {
         if (auth instanceof RoleBasedAuthorizationStrategy && pns instanceof RoleBasedProjectNamingStrategy) {
           RoleBasedAuthorizationStrategy rbas = (RoleBasedAuthorizationStrategy) auth;
           RoleMap roleMapProject = rbas.getRoleMap(RoleType.Project);
-          if (roleMapProject.hasPermission(entry, permission, RoleType.Project, item)) {
+          if (roleMapProject.hasPermission(name, type, permission, RoleType.Project, item)) {
             return true;
           }
         }
@@ -833,52 +1600,135 @@ public class RoleMap {
     }
   }
 
-  private static boolean shouldCheckParentPermissions() {
-    // TODO Switch to SystemProperties in 2.236+
-    String propertyName = RoleMap.class.getName() + ".checkParentPermissions";
-    String value = System.getProperty(propertyName);
-    if (value == null) {
-      return true;
+  /**
+   * Collects the roles granting a permission to the sids of an authentication, the same way {@link AclImpl} checks
+   * them. Doesn't evaluate macros.
+   */
+  private final class GrantingRolesCollector extends SidACL {
+    private final RoleMapSnapshot roles;
+    private final Set<Role> granting = new TreeSet<>();
+
+    GrantingRolesCollector(RoleMapSnapshot roles) {
+      this.roles = roles;
+    }
+
+    @Override
+    @CheckForNull
+    protected Boolean hasPermission(Sid sid, Permission permission) {
+      String name = toString(sid);
+      boolean principal = sid instanceof PrincipalSid;
+      SecurityRealm securityRealm = FORCE_CASE_SENSITIVE ? null : Jenkins.get().getSecurityRealm();
+      if (!roles.mayBeAssigned(name, principal, securityRealm)) {
+        return null;
+      }
+      PermissionMask permissions = getImplyingPermissions(permission);
+      Assignment[] assignments = roles.getAssignments(name, principal, securityRealm);
+      for (Assignment assignment : assignments) {
+        if (roles.isVisible(assignment) && assignment.role.hasAnyPermission(permissions)) {
+          granting.add(assignment.role);
+        }
+      }
+      return null;
     }
-    return Boolean.parseBoolean(value);
   }
 
   /**
-   * A class to walk through all the {@link RoleMap}'s roles and perform an action on each one.
+   * Cache of the matching {@link RoleMap}s and its statistics. Entries record the versions of the roles they were built
+   * from and are only built again once one of these roles has been modified.
    */
-  private abstract class RoleWalker {
-    boolean shouldAbort = false;
+  private static final class MatchingRoleMapCache {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Cache<String, MatchingRoleMap> cache = Caffeine.newBuilder()
+        .maximumSize(Settings.MATCHING_ROLE_MAP_CACHE_MAX_SIZE)
+        .expireAfterWrite(Settings.MATCHING_ROLE_MAP_CACHE_EXPIRATION_TIME_SEC, TimeUnit.SECONDS)
+        .evictionListener((String key, MatchingRoleMap value, RemovalCause cause) -> evictions.increment())
+        .build();
+    private final ConcurrentMap<String, MatchingRoleMap> pinned = new ConcurrentHashMap<>();
+  }
 
-    RoleWalker() {
-      walk();
+  /**
+   * A cached matching {@link RoleMap}, with the versions of the roles it was built from.
+   */
+  private static final class MatchingRoleMap {
+    /**
+     * The matching role map, {@code null} once released because the roles have been modified.
+     */
+    @CheckForNull
+    private final RoleMap roleMap;
+    private final long rolesVersion;
+    private final Role[] roles;
+    private final long[] roleVersions;
+
+    MatchingRoleMap(RoleMap roleMap, RoleMapSnapshot source, Role[] roles) {
+      this.roleMap = roleMap;
+      this.rolesVersion = source.getRolesVersion();
+      this.roles = roles;
+      this.roleVersions = new long[roles.length];
+      for (int i = 0; i < roles.length; i++) {
+        roleVersions[i] = source.getRoleVersion(roles[i]);
+      }
+    }
+
+    private MatchingRoleMap(MatchingRoleMap released) {
+      this.roleMap = null;
+      this.rolesVersion = released.rolesVersion;
+      this.roles = released.roles;
+      this.roleVersions = released.roleVersions;
     }
 
     /**
-     * Aborts the iterations. The method can be used from RoleWalker callbacks to preemptively abort the execution loops on
-     * some conditions.
-     *
-     * @since 2.10
+     * Checks whether the matching role map is still up-to-date: no roles have been added and the matched roles
+     * haven't been modified.
      */
-    public void abort() {
-      this.shouldAbort = true;
+    boolean isValid(RoleMapSnapshot current) {
+      if (roleMap == null || rolesVersion != current.getRolesVersion()) {
+        return false;
+      }
+      for (int i = 0; i < roles.length; i++) {
+        if (roleVersions[i] != current.getRoleVersion(roles[i])) {
+          return false;
+        }
+      }
+      return true;
     }
 
     /**
-     * Walk through the roles.
+     * Move the view of a {@link #isValid(RoleMapSnapshot) valid} matching role map to the current snapshot, so that
+     * it doesn't keep a previous snapshot reachable. The visible roles and their assignments are the same.
      */
-    public void walk() {
-      Set<Role> roles = RoleMap.this.getRoles();
-      for (Role current : roles) {
-        perform(current);
-        if (shouldAbort) {
-          break;
+    void rebase(RoleMapSnapshot current) {
+      if (roleMap.snapshot.isViewOf(current)) {
+        return;
+      }
+      BitSet roleIndexes = new BitSet();
+      for (Role role : roles) {
+        int index = current.getRoleIndex(role);
+        if (index >= 0) {
+          roleIndexes.set(index);
         }
       }
+      roleMap.snapshot = current.view(roleIndexes);
     }
 
     /**
-     * The method to implement which will be called on each {@link Role}.
+     * Drop the view of a matching role map which is no longer valid, and keep the matched roles for
+     * {@link RoleMap#createMatchingRoleMap(String, RoleMapSnapshot, MatchingRoleMap)}.
      */
-    public abstract void perform(Role current);
+    MatchingRoleMap release() {
+      return roleMap == null ? this : new MatchingRoleMap(this);
+    }
+  }
+
+  static boolean shouldCheckParentPermissions() {
+    // TODO Switch to SystemProperties in 2.236+
+    String propertyName = RoleMap.class.getName() + ".checkParentPermissions";
+    String value = System.getProperty(propertyName);
+    if (value == null) {
+      return true;
+    }
+    return Boolean.parseBoolean(value);
   }
 }
@@ -0,0 +1,839 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.Macro;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.security.SecurityRealm;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import jenkins.model.IdStrategy;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
+
+/**
+ * Immutable copy of the roles and assignments of a {@link RoleMap}, together with the lookup structures used by the
+ * permission checks.
+ *
+ * <p>A {@link RoleMap} publishes a new snapshot after each modification, so readers never need a lock and never see a
+ * partially applied modification.
+ *
+ * <p>A snapshot can also be a view restricted to some of the roles of another snapshot, see {@link #view(BitSet)}.
+ * Views share all the lookup structures of the snapshot they were created from.
+ */
+final class RoleMapSnapshot {
+
+  private static final Role[] NO_ROLES = new Role[0];
+
+  private static final Assignment[] NO_ASSIGNMENTS = new Assignment[0];
+
+  /**
+   * Number of bits of the {@link AssignedSidFilter} set for each sid.
+   */
+  private static final int FILTER_HASHES = 3;
+
+  /**
+   * Order of the pages of sids, by name and then by type, so that sids sharing a prefix are next to each other.
+   */
+  private static final Comparator<PermissionEntry> BY_SID_NAME =
+      Comparator.comparing(PermissionEntry::getSid).thenComparing(PermissionEntry::getType);
+
+  /**
+   * The complete snapshot, {@code this} unless this is a view.
+   */
+  private final RoleMapSnapshot base;
+
+  /**
+   * Indexes of the roles visible in this view, {@code null} if all the roles are visible.
+   */
+  @CheckForNull
+  private final BitSet visibleRoles;
+
+  /**
+   * Roles sorted by name.
+   */
+  private final Role[] roles;
+
+  /**
+   * Assigned sids of each role, in the same order as {@link #roles}.
+   */
+  private final List<Set<PermissionEntry>> roleSids;
+
+  /**
+   * Indexes of the roles, by name.
+   */
+  private final Map<String, Integer> roleIndexes;
+
+  /**
+   * Roles assigned to each sid, whatever the {@link AuthorizationType} of the assignment, sorted by role name.
+   */
+  private final Map<String, Role[]> sidIndex;
+
+  /**
+   * Assignments applying to users, indexed by sid and sorted by role name.
+   */
+  private final Map<String, Assignment[]> userAssignments;
+
+  /**
+   * Assignments applying to groups, indexed by sid and sorted by role name.
+   */
+  private final Map<String, Assignment[]> groupAssignments;
+
+  /**
+   * Indexes of the roles which are {@link Macro}s.
+   */
+  private final BitSet macroRoles;
+
+  /**
+   * Evaluators of the macro roles, in the same order as {@link #roles}. Bound on first use.
+   */
+  private final MacroEvaluator[] macroEvaluators;
+
+  /**
+   * Version of the set of roles, changes when roles are added.
+   */
+  private final long rolesVersion;
+
+  /**
+   * Version of the assignments of each role, by role name.
+   */
+  private final Map<String, Long> roleVersions;
+
+  /**
+   * Assignments indexed by the keys of the {@link IdStrategy IdStrategies} of a security realm. Built on first use and
+   * built again when the security realm changes. Only used in the base snapshot.
+   */
+  private volatile NormalizedIndex normalizedIndex;
+
+  /**
+   * Sids assigned to a visible role granting a permission, for the last checked permission. Built on first use.
+   */
+  private volatile GrantedAnywhereIndex grantedAnywhere;
+
+  /**
+   * Filter of the sids assigned to a role, built on first use. Only set in base snapshots, their views share it.
+   */
+  private volatile AssignedSidFilter assignedSids;
+
+  /**
+   * Visible roles and their assigned sids. Built on first use.
+   */
+  private volatile SortedMap<Role, Set<PermissionEntry>> grantedRoles;
+
+  /**
+   * All sids referenced by the visible roles. Built on first use.
+   */
+  private volatile SortedSet<PermissionEntry> sidEntries;
+
+  /**
+   * Names of the visible roles assigned to each sid. Built on first use.
+   */
+  private volatile SortedMap<PermissionEntry, List<String>> roleNamesBySid;
+
+  /**
+   * Sids sorted by {@link #BY_SID_NAME}, with the names of their visible roles. Built on first use.
+   */
+  private volatile SortedSids sortedSids;
+
+  /**
+   * Matcher of the patterns of the visible roles. Built on first use.
+   */
+  private volatile RolePatternMatcher patternMatcher;
+
+  /**
+   * Build a snapshot of the given roles. The sets of sids are copied, so later changes to the source aren't visible.
+   *
+   * @param source Roles and their assigned sids
+   * @param rolesVersion Version of the set of roles
+   * @param roleVersions Version of the assignments of each role, by role name
+   */
+  RoleMapSnapshot(@NonNull SortedMap<Role, Set<PermissionEntry>> source, long rolesVersion, @NonNull Map<String, Long> roleVersions) {
+    this.base = this;
+    this.visibleRoles = null;
+    this.roles = source.keySet().toArray(NO_ROLES);
+    this.roleSids = new ArrayList<>(roles.length);
+    this.roleIndexes = new HashMap<>();
+    this.macroRoles = new BitSet();
+    this.macroEvaluators = new MacroEvaluator[roles.length];
+    Map<String, List<Role>> index = new HashMap<>();
+    Map<String, List<Assignment>> users = new HashMap<>();
+    Map<String, List<Assignment>> groups = new HashMap<>();
+    for (int i = 0; i < roles.length; i++) {
+      Role role = roles[i];
+      if (Macro.isMacro(role)) {
+        macroRoles.set(i);
+      }
+      Set<PermissionEntry> entries = Collections.unmodifiableSet(new LinkedHashSet<>(source.get(role)));
+      roleSids.add(entries);
+      roleIndexes.put(role.getName(), i);
+      for (PermissionEntry sid : entries) {
+        List<Role> assigned = index.computeIfAbsent(sid.getSid(), k -> new ArrayList<>());
+        // roles are visited in order, so a sid assigned twice to the same role (e.g. as user and group) is the last one
+        if (assigned.isEmpty() || assigned.get(assigned.size() - 1) != role) {
+          assigned.add(role);
+        }
+        if (sid.isApplicable(true)) {
+          users.computeIfAbsent(sid.getSid(), k -> new ArrayList<>()).add(new Assignment(role, i, sid));
+        }
+        if (sid.isApplicable(false)) {
+          groups.computeIfAbsent(sid.getSid(), k -> new ArrayList<>()).add(new Assignment(role, i, sid));
+        }
+      }
+    }
+    Map<String, Role[]> rolesBySid = new HashMap<>(index.size());
+    for (Map.Entry<String, List<Role>> entry : index.entrySet()) {
+      rolesBySid.put(entry.getKey(), entry.getValue().toArray(NO_ROLES));
+    }
+    this.sidIndex = rolesBySid;
+    this.userAssignments = toArrays(users);
+    this.groupAssignments = toArrays(groups);
+    this.rolesVersion = rolesVersion;
+    this.roleVersions = new HashMap<>(roleVersions);
+  }
+
+  private RoleMapSnapshot(RoleMapSnapshot base, BitSet visibleRoles) {
+    this.base = base;
+    this.visibleRoles = visibleRoles;
+    this.roles = base.roles;
+    this.roleSids = base.roleSids;
+    this.roleIndexes = base.roleIndexes;
+    this.sidIndex = base.sidIndex;
+    this.userAssignments = base.userAssignments;
+    this.groupAssignments = base.groupAssignments;
+    this.macroRoles = base.macroRoles;
+    this.macroEvaluators = base.macroEvaluators;
+    this.rolesVersion = base.rolesVersion;
+    this.roleVersions = base.roleVersions;
+  }
+
+  private static Map<String, Assignment[]> toArrays(Map<String, List<Assignment>> source) {
+    Map<String, Assignment[]> result = new HashMap<>(source.size());
+    for (Map.Entry<String, List<Assignment>> entry : source.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().toArray(NO_ASSIGNMENTS));
+    }
+    return result;
+  }
+
+  /**
+   * Create a view of the base snapshot restricted to the given roles.
+   *
+   * @param roleIndexes Indexes of the visible roles, see {@link #getRoleIndex(Role)}. Must not be modified afterwards.
+   * @return The view
+   */
+  @NonNull
+  RoleMapSnapshot view(@NonNull BitSet roleIndexes) {
+    return new RoleMapSnapshot(base, roleIndexes);
+  }
+
+  /**
+   * Checks whether this snapshot is a view of another snapshot, or of the same base snapshot.
+   *
+   * @param other A snapshot or a view
+   * @return True if both share the same base snapshot
+   */
+  boolean isViewOf(@NonNull RoleMapSnapshot other) {
+    return base == other.base;
+  }
+
+  /**
+   * Get the index of a role in the base snapshot.
+   *
+   * @param role The role
+   * @return The index, {@code -1} if there is no role with this name
+   */
+  int getRoleIndex(@NonNull Role role) {
+    Integer index = roleIndexes.get(role.getName());
+    return index != null ? index : -1;
+  }
+
+  private boolean isVisible(int index) {
+    return visibleRoles == null || visibleRoles.get(index);
+  }
+
+  /**
+   * Checks whether the role of an assignment is visible in this snapshot.
+   *
+   * @param assignment An assignment returned by {@link #getAssignments(String, boolean, SecurityRealm)}
+   * @return True if the role is visible
+   */
+  boolean isVisible(@NonNull Assignment assignment) {
+    return isVisible(assignment.roleIndex);
+  }
+
+  @NonNull
+  SortedMap<Role, Set<PermissionEntry>> getGrantedRoles() {
+    SortedMap<Role, Set<PermissionEntry>> result = grantedRoles;
+    if (result == null) {
+      SortedMap<Role, Set<PermissionEntry>> map = new TreeMap<>();
+      for (int i = 0; i < roles.length; i++) {
+        if (isVisible(i)) {
+          map.put(roles[i], roleSids.get(i));
+        }
+      }
+      result = Collections.unmodifiableSortedMap(map);
+      grantedRoles = result;
+    }
+    return result;
+  }
+
+  @CheckForNull
+  Role getRole(String name) {
+    Integer index = roleIndexes.get(name);
+    return index != null && isVisible(index) ? roles[index] : null;
+  }
+
+  @CheckForNull
+  Set<PermissionEntry> getSidEntries(Role role) {
+    int index = getRoleIndex(role);
+    return index >= 0 && isVisible(index) ? roleSids.get(index) : null;
+  }
+
+  @NonNull
+  SortedSet<PermissionEntry> getSidEntries() {
+    SortedSet<PermissionEntry> result = sidEntries;
+    if (result == null) {
+      SortedSet<PermissionEntry> sids = new TreeSet<>();
+      for (int i = 0; i < roles.length; i++) {
+        if (isVisible(i)) {
+          sids.addAll(roleSids.get(i));
+        }
+      }
+      result = Collections.unmodifiableSortedSet(sids);
+      sidEntries = result;
+    }
+    return result;
+  }
+
+  /**
+   * Get the names of the visible roles assigned to each sid, in a single pass over the assignments.
+   *
+   * @return The names of the roles, sorted by role name, by sid
+   */
+  @NonNull
+  SortedMap<PermissionEntry, List<String>> getRoleNamesBySid() {
+    SortedMap<PermissionEntry, List<String>> result = roleNamesBySid;
+    if (result == null) {
+      SortedMap<PermissionEntry, List<String>> map = new TreeMap<>();
+      for (int i = 0; i < roles.length; i++) {
+        if (isVisible(i)) {
+          String name = roles[i].getName();
+          for (PermissionEntry sid : roleSids.get(i)) {
+            map.computeIfAbsent(sid, k -> new ArrayList<>()).add(name);
+          }
+        }
+      }
+      map.replaceAll((sid, names) -> Collections.unmodifiableList(names));
+      result = Collections.unmodifiableSortedMap(map);
+      roleNamesBySid = result;
+    }
+    return result;
+  }
+
+  /**
+   * Get a page of the visible roles and their assigned sids, sorted by role name.
+   * The first role is found by a binary search, so the cost of a page only depends on the number of roles and sids
+   * visited to fill it.
+   *
+   * @param after Name of the last role of the previous page, {@code null} for the first page
+   * @param namePrefix Prefix of the names of the roles, all the roles of the page are in the range of this prefix
+   * @param nameFilter Filter of the names of the roles
+   * @param sidFilter Filter of the sids, roles without any matching sid are skipped. {@code null} to return all the sids
+   *     and all the roles.
+   * @param limit Maximum number of roles
+   * @return The roles and their matching sids
+   */
+  @NonNull
+  SortedMap<Role, Set<PermissionEntry>> getGrantedRolesPage(@CheckForNull String after, @NonNull String namePrefix,
+      @NonNull Predicate<String> nameFilter, @CheckForNull Predicate<PermissionEntry> sidFilter, int limit) {
+    int from = firstIndex(roles, role -> role.getName().compareTo(namePrefix) < 0);
+    if (after != null) {
+      from = Math.max(from, firstIndex(roles, role -> role.getName().compareTo(after) <= 0));
+    }
+    SortedMap<Role, Set<PermissionEntry>> page = new TreeMap<>();
+    for (int i = from; i < roles.length && page.size() < limit; i++) {
+      String name = roles[i].getName();
+      if (!name.startsWith(namePrefix)) {
+        break;
+      }
+      if (!isVisible(i) || !nameFilter.test(name)) {
+        continue;
+      }
+      Set<PermissionEntry> sids = roleSids.get(i);
+      if (sidFilter != null) {
+        Set<PermissionEntry> matching = new LinkedHashSet<>();
+        for (PermissionEntry sid : sids) {
+          if (sidFilter.test(sid)) {
+            matching.add(sid);
+          }
+        }
+        if (matching.isEmpty()) {
+          continue;
+        }
+        sids = Collections.unmodifiableSet(matching);
+      }
+      page.put(roles[i], sids);
+    }
+    return Collections.unmodifiableSortedMap(page);
+  }
+
+  /**
+   * Get a page of the sids assigned to visible roles and the names of their roles, sorted by sid and then by type.
+   * The first sid is found by a binary search, so the cost of a page only depends on the number of sids visited to fill
+   * it.
+   *
+   * @param after Last sid of the previous page, {@code null} for the first page
+   * @param sidPrefix Prefix of the sids, all the sids of the page are in the range of this prefix
+   * @param sidType Type of the sids, {@code null} for all types
+   * @param roleNameFilter Filter of the names of the roles, sids without any matching role are skipped. {@code null} to
+   *     return all the roles and all the sids.
+   * @param limit Maximum number of sids
+   * @return The sids and the names of their matching roles, in the order of the page
+   */
+  @NonNull
+  Map<PermissionEntry, List<String>> getRoleNamesBySidPage(@CheckForNull PermissionEntry after, @NonNull String sidPrefix,
+      @CheckForNull AuthorizationType sidType, @CheckForNull Predicate<String> roleNameFilter, int limit) {
+    SortedSids index = sortedSids;
+    if (index == null) {
+      index = new SortedSids(getRoleNamesBySid());
+      sortedSids = index;
+    }
+    PermissionEntry[] sids = index.sids;
+    int from = firstIndex(sids, sid -> sid.getSid().compareTo(sidPrefix) < 0);
+    if (after != null) {
+      from = Math.max(from, firstIndex(sids, sid -> BY_SID_NAME.compare(sid, after) <= 0));
+    }
+    Map<PermissionEntry, List<String>> page = new LinkedHashMap<>();
+    for (int i = from; i < sids.length && page.size() < limit; i++) {
+      PermissionEntry sid = sids[i];
+      if (!sid.getSid().startsWith(sidPrefix)) {
+        break;
+      }
+      if (sidType != null && sid.getType() != sidType) {
+        continue;
+      }
+      List<String> names = index.roleNames.get(i);
+      if (roleNameFilter != null) {
+        List<String> matching = new ArrayList<>();
+        for (String name : names) {
+          if (roleNameFilter.test(name)) {
+            matching.add(name);
+          }
+        }
+        if (matching.isEmpty()) {
+          continue;
+        }
+        names = Collections.unmodifiableList(matching);
+      }
+      page.put(sid, names);
+    }
+    return Collections.unmodifiableMap(page);
+  }
+
+  /**
+   * Binary search of the first element of a sorted array which isn't before the searched position.
+   *
+   * @param sorted The sorted array
+   * @param isBefore True for the elements before the searched position, must be true for a prefix of the array
+   * @return The index of the first element for which {@code isBefore} is false, the length of the array if none
+   */
+  private static <T> int firstIndex(T[] sorted, Predicate<T> isBefore) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (isBefore.test(sorted[mid])) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  boolean isMacro(int roleIndex) {
+    return macroRoles.get(roleIndex);
+  }
+
+  boolean hasMacroRoles() {
+    return visibleRoles == null ? !macroRoles.isEmpty() : macroRoles.intersects(visibleRoles);
+  }
+
+  /**
+   * Get the evaluator of a macro role. Bound on first use rather than when the snapshot is built, as the macro
+   * extensions may not be loaded yet when the roles are loaded.
+   *
+   * @param roleIndex The index of a macro role
+   * @return The evaluator
+   */
+  @NonNull
+  MacroEvaluator getMacroEvaluator(int roleIndex) {
+    MacroEvaluator evaluator = macroEvaluators[roleIndex];
+    if (evaluator == null) {
+      // concurrent callers may bind the role twice, which is harmless as evaluators are immutable
+      evaluator = MacroEvaluator.of(roles[roleIndex]);
+      macroEvaluators[roleIndex] = evaluator;
+    }
+    return evaluator;
+  }
+
+  long getRolesVersion() {
+    return rolesVersion;
+  }
+
+  long getRoleVersion(@NonNull Role role) {
+    return roleVersions.getOrDefault(role.getName(), 0L);
+  }
+
+  /**
+   * Get the roles the sid is assigned to, sorted by role name.
+   *
+   * @param sid The sid, compared case-sensitively
+   * @return The roles, the array must not be modified
+   */
+  @NonNull
+  @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Internal immutable structure, callers don't modify it")
+  Role[] getRolesForSid(String sid) {
+    Role[] assigned = sidIndex.getOrDefault(sid, NO_ROLES);
+    if (visibleRoles == null) {
+      return assigned;
+    }
+    List<Role> visible = new ArrayList<>(assigned.length);
+    for (Role role : assigned) {
+      if (isVisible(getRoleIndex(role))) {
+        visible.add(role);
+      }
+    }
+    return visible.toArray(NO_ROLES);
+  }
+
+  /**
+   * Get the matcher of the patterns of the visible roles.
+   *
+   * @return The matcher, which returns the roles sorted by name
+   */
+  @NonNull
+  RolePatternMatcher getPatternMatcher() {
+    RolePatternMatcher matcher = patternMatcher;
+    if (matcher == null) {
+      matcher = new RolePatternMatcher(getGrantedRoles().keySet());
+      patternMatcher = matcher;
+    }
+    return matcher;
+  }
+
+  /**
+   * Get the assignments applying to a user or a group, sorted by role name.
+   * The assignments of the same role are adjacent. In a view, the assignments of all the roles of the base snapshot
+   * are returned, callers must skip the ones which aren't {@link #isVisible(Assignment) visible}.
+   *
+   * @param sid The sid to look up
+   * @param principal True to look up a user, false to look up a group
+   * @param securityRealm The realm whose {@link IdStrategy} is used to compare sids, {@code null} to compare
+   *     case-sensitively
+   * @return The assignments, the array must not be modified
+   */
+  @NonNull
+  Assignment[] getAssignments(@NonNull String sid, boolean principal, @CheckForNull SecurityRealm securityRealm) {
+    if (securityRealm == null) {
+      return (principal ? userAssignments : groupAssignments).getOrDefault(sid, NO_ASSIGNMENTS);
+    }
+    NormalizedIndex index = base.normalizedIndex;
+    if (index == null || index.securityRealm != securityRealm) {
+      index = base.new NormalizedIndex(securityRealm);
+      base.normalizedIndex = index;
+    }
+    return index.get(sid, principal);
+  }
+
+  /**
+   * Checks whether a user or a group may be assigned to a role. Users often belong to hundreds of groups which appear
+   * in no role, this rejects them with a few bit tests, before anything else is looked up.
+   * The filter is a Bloom filter of the ids of the sids, normalized with the {@link IdStrategy IdStrategies} of the
+   * security realm. It is built on first use and built again when the security realm changes. It is shared by the
+   * views of the base snapshot, so it may accept a sid only assigned to roles which aren't visible in a view: callers
+   * skip the assignments which aren't {@link #isVisible(Assignment) visible}.
+   *
+   * @param sid The sid to look up
+   * @param principal True to look up a user, false to look up a group
+   * @param securityRealm The realm whose {@link IdStrategy} is used to compare sids, {@code null} to compare
+   *     case-sensitively
+   * @return False if the sid is assigned to no role, true if it may be assigned to one
+   */
+  boolean mayBeAssigned(@NonNull String sid, boolean principal, @CheckForNull SecurityRealm securityRealm) {
+    AssignedSidFilter filter = base.assignedSids;
+    if (filter == null || filter.securityRealm != securityRealm) {
+      filter = base.new AssignedSidFilter(securityRealm);
+      base.assignedSids = filter;
+    }
+    return filter.mayContain(sid, principal);
+  }
+
+  /**
+   * Checks whether a user or a group is assigned to a visible role having one of the given permissions, whatever the
+   * item. {@link Macro} roles are ignored, as they can't be evaluated without an item.
+   * The sids are indexed on first use and indexed again when the permissions, the roles' permissions or the security
+   * realm change, so this is a set lookup as long as the same permissions are checked.
+   *
+   * @param sid The sid to look up
+   * @param principal True to look up a user, false to look up a group
+   * @param securityRealm The realm whose {@link IdStrategy} is used to compare sids, {@code null} to compare
+   *     case-sensitively
+   * @param permissions The permissions
+   * @param generation The current {@link PermissionDecisionCache#getGeneration() generation}, which changes when the
+   *     permissions of roles change
+   * @return True if the sid is assigned to such a role
+   */
+  boolean isGrantedAnywhere(@NonNull String sid, boolean principal, @CheckForNull SecurityRealm securityRealm,
+      @NonNull PermissionMask permissions, long generation) {
+    GrantedAnywhereIndex index = grantedAnywhere;
+    if (index == null || !index.isValid(securityRealm, permissions, generation)) {
+      index = new GrantedAnywhereIndex(securityRealm, permissions, generation);
+      grantedAnywhere = index;
+    }
+    return index.contains(sid, principal);
+  }
+
+  /**
+   * Assignment of a sid to a role.
+   */
+  static final class Assignment {
+    final Role role;
+    final int roleIndex;
+    final PermissionEntry entry;
+
+    Assignment(Role role, int roleIndex, PermissionEntry entry) {
+      this.role = role;
+      this.roleIndex = roleIndex;
+      this.entry = entry;
+    }
+  }
+
+  /**
+   * Sids sorted by {@link #BY_SID_NAME}, with the names of their roles.
+   */
+  private static final class SortedSids {
+    private final PermissionEntry[] sids;
+    private final List<List<String>> roleNames;
+
+    SortedSids(SortedMap<PermissionEntry, List<String>> roleNamesBySid) {
+      this.sids = roleNamesBySid.keySet().toArray(new PermissionEntry[0]);
+      Arrays.sort(sids, BY_SID_NAME);
+      this.roleNames = new ArrayList<>(sids.length);
+      for (PermissionEntry sid : sids) {
+        roleNames.add(roleNamesBySid.get(sid));
+      }
+    }
+  }
+
+  /**
+   * Assignments indexed by {@link IdStrategy#keyFor(String)}, using the user and group strategies of a security realm.
+   */
+  private final class NormalizedIndex {
+    private final SecurityRealm securityRealm;
+    private final IdStrategy userStrategy;
+    private final IdStrategy groupStrategy;
+    private final Map<String, Assignment[]> users;
+    private final Map<String, Assignment[]> groups;
+
+    NormalizedIndex(SecurityRealm securityRealm) {
+      this.securityRealm = securityRealm;
+      this.userStrategy = securityRealm.getUserIdStrategy();
+      this.groupStrategy = securityRealm.getGroupIdStrategy();
+      this.users = normalize(userAssignments, userStrategy);
+      this.groups = normalize(groupAssignments, groupStrategy);
+    }
+
+    private Map<String, Assignment[]> normalize(Map<String, Assignment[]> source, IdStrategy strategy) {
+      Map<String, List<Assignment>> merged = new HashMap<>(source.size());
+      for (Map.Entry<String, Assignment[]> entry : source.entrySet()) {
+        Collections.addAll(merged.computeIfAbsent(strategy.keyFor(entry.getKey()), k -> new ArrayList<>()), entry.getValue());
+      }
+      for (List<Assignment> assignments : merged.values()) {
+        // keep the assignments of a role together, the sort is stable so they stay in their original order
+        assignments.sort((a1, a2) -> Integer.compare(a1.roleIndex, a2.roleIndex));
+      }
+      return toArrays(merged);
+    }
+
+    Assignment[] get(String sid, boolean principal) {
+      return principal
+          ? users.getOrDefault(userStrategy.keyFor(sid), NO_ASSIGNMENTS)
+          : groups.getOrDefault(groupStrategy.keyFor(sid), NO_ASSIGNMENTS);
+    }
+  }
+
+  /**
+   * Sids assigned to a visible role having one of some permissions, see
+   * {@link #isGrantedAnywhere(String, boolean, SecurityRealm, PermissionMask, long)}.
+   */
+  private final class GrantedAnywhereIndex {
+    @CheckForNull
+    private final SecurityRealm securityRealm;
+    @CheckForNull
+    private final NormalizedIndex normalized;
+    private final PermissionMask permissions;
+    private final long generation;
+    private final Set<String> users;
+    private final Set<String> groups;
+
+    GrantedAnywhereIndex(@CheckForNull SecurityRealm securityRealm, PermissionMask permissions, long generation) {
+      this.securityRealm = securityRealm;
+      this.permissions = permissions;
+      this.generation = generation;
+      BitSet granting = new BitSet(roles.length);
+      for (int i = 0; i < roles.length; i++) {
+        if (isVisible(i) && !macroRoles.get(i) && roles[i].hasAnyPermission(permissions)) {
+          granting.set(i);
+        }
+      }
+      if (securityRealm == null) {
+        this.normalized = null;
+        this.users = collect(userAssignments, granting);
+        this.groups = collect(groupAssignments, granting);
+      } else {
+        // make sure the normalized index is built for this realm
+        getAssignments("", true, securityRealm);
+        this.normalized = base.normalizedIndex;
+        this.users = collect(normalized.users, granting);
+        this.groups = collect(normalized.groups, granting);
+      }
+    }
+
+    private Set<String> collect(Map<String, Assignment[]> assignments, BitSet granting) {
+      Set<String> sids = new HashSet<>();
+      for (Map.Entry<String, Assignment[]> entry : assignments.entrySet()) {
+        for (Assignment assignment : entry.getValue()) {
+          if (granting.get(assignment.roleIndex)) {
+            sids.add(entry.getKey());
+            break;
+          }
+        }
+      }
+      return sids;
+    }
+
+    boolean isValid(@CheckForNull SecurityRealm securityRealm, PermissionMask permissions, long generation) {
+      return this.securityRealm == securityRealm && this.generation == generation && this.permissions.equals(permissions);
+    }
+
+    boolean contains(String sid, boolean principal) {
+      if (normalized == null) {
+        return (principal ? users : groups).contains(sid);
+      }
+      return principal
+          ? users.contains(normalized.userStrategy.keyFor(sid))
+          : groups.contains(normalized.groupStrategy.keyFor(sid));
+    }
+  }
+
+  /**
+   * Bloom filter of the sids assigned to a role of a base snapshot, see
+   * {@link #mayBeAssigned(String, boolean, SecurityRealm)}.
+   */
+  private final class AssignedSidFilter {
+    @CheckForNull
+    private final SecurityRealm securityRealm;
+    @CheckForNull
+    private final IdStrategy userStrategy;
+    @CheckForNull
+    private final IdStrategy groupStrategy;
+    private final long[] users;
+    private final long[] groups;
+
+    AssignedSidFilter(@CheckForNull SecurityRealm securityRealm) {
+      this.securityRealm = securityRealm;
+      if (securityRealm == null) {
+        this.userStrategy = null;
+        this.groupStrategy = null;
+        this.users = build(userAssignments);
+        this.groups = build(groupAssignments);
+      } else {
+        // make sure the normalized index is built for this realm
+        getAssignments("", true, securityRealm);
+        NormalizedIndex normalized = base.normalizedIndex;
+        this.userStrategy = normalized.userStrategy;
+        this.groupStrategy = normalized.groupStrategy;
+        this.users = build(normalized.users);
+        this.groups = build(normalized.groups);
+      }
+    }
+
+    private long[] build(Map<String, Assignment[]> assignments) {
+      Set<String> keys = assignments.keySet();
+      // 16 bits per sid keep the false positive rate below 1%
+      int size = 64;
+      while (size < keys.size() * 16 && size < 1 << 30) {
+        size <<= 1;
+      }
+      long[] bits = new long[size / 64];
+      for (String key : keys) {
+        int hash = spread(key.hashCode());
+        int step = Integer.rotateLeft(hash, 16) | 1;
+        for (int i = 0; i < FILTER_HASHES; i++, hash += step) {
+          int bit = hash & (size - 1);
+          bits[bit >>> 6] |= 1L << bit;
+        }
+      }
+      return bits;
+    }
+
+    private int spread(int hash) {
+      int h = hash * 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+
+    boolean mayContain(String sid, boolean principal) {
+      long[] bits = principal ? users : groups;
+      IdStrategy strategy = principal ? userStrategy : groupStrategy;
+      String key = strategy == null ? sid : strategy.keyFor(sid);
+      int hash = spread(key.hashCode());
+      int step = Integer.rotateLeft(hash, 16) | 1;
+      int mask = bits.length * 64 - 1;
+      for (int i = 0; i < FILTER_HASHES; i++, hash += step) {
+        int bit = hash & mask;
+        if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
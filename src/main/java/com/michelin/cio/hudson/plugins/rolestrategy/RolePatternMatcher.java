@@ -0,0 +1,722 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Finds all the roles whose pattern matches an item name in a single pass over the name.
+ *
+ * <p>Literal and literal prefix patterns (see {@link PatternClassification}) are stored in a prefix tree over the item
+ * names. The other patterns are merged into one non-deterministic automaton, which is turned into a deterministic one lazily,
+ * while matching names. Once the states visited by a name have been built, matching takes time linear in the length of
+ * the name whatever the number of roles.
+ *
+ * <p>Only the common subset of the {@link Pattern} syntax is supported: literals, {@code .}, character classes,
+ * {@code \d \w \s} and their negations, groups, alternations and the {@code * + ?} quantifiers, as well as leading
+ * {@code ^} and trailing {@code $}. Patterns using anything else (flags, bounded repetitions, back references,
+ * look-arounds, possessive quantifiers...) are matched with {@link Pattern}.
+ */
+final class RolePatternMatcher {
+
+  /**
+   * Maximum number of deterministic states kept. Once reached, transitions are computed on the fly.
+   */
+  private static final int MAX_STATES = 10000;
+
+  private static final int CHAR = 0;
+  private static final int SPLIT = 1;
+  private static final int MATCH = 2;
+
+  private final Role[] roles;
+
+  /**
+   * Prefix tree of the literal and literal prefix patterns.
+   */
+  private final TrieNode trie = new TrieNode();
+
+  private final int literalCount;
+
+  private final int prefixCount;
+
+  /**
+   * Indexes of the roles whose pattern isn't supported by the automaton.
+   */
+  private final int[] fallback;
+
+  private final int[] kinds;
+  private final CharClass[] charClasses;
+  private final int[][] targets;
+
+  private final Map<StateKey, State> states = new ConcurrentHashMap<>();
+  private final AtomicInteger stateCount = new AtomicInteger();
+  private final State start;
+
+  /**
+   * Compile the patterns of the given roles.
+   *
+   * @param roles The roles, the matches are returned in the same order
+   */
+  RolePatternMatcher(@NonNull Collection<Role> roles) {
+    this.roles = roles.toArray(new Role[0]);
+    Nfa nfa = new Nfa();
+    List<Integer> starts = new ArrayList<>();
+    List<Integer> unsupported = new ArrayList<>();
+    int literals = 0;
+    int prefixes = 0;
+    for (int i = 0; i < this.roles.length; i++) {
+      PatternClassification classification = this.roles[i].getPatternClassification();
+      if (classification.getKind() == PatternClassification.Kind.LITERAL) {
+        trie.add(classification.getLiteral()).literals.add(i);
+        literals++;
+        continue;
+      }
+      if (classification.getKind() == PatternClassification.Kind.LITERAL_PREFIX) {
+        trie.add(classification.getPrefix()).prefixes.add(i);
+        if (classification.getLiteral() != null) {
+          trie.add(classification.getLiteral()).literals.add(i);
+        }
+        prefixes++;
+        continue;
+      }
+      Pattern pattern = this.roles[i].getPattern();
+      Node node = pattern.flags() == 0 ? new Parser(pattern.pattern()).parse() : null;
+      if (node == null) {
+        unsupported.add(i);
+      } else {
+        starts.add(node.compile(nfa, nfa.add(MATCH, null, i)));
+      }
+    }
+    int initial = nfa.add(SPLIT, null, starts.stream().mapToInt(Integer::intValue).toArray());
+    this.literalCount = literals;
+    this.prefixCount = prefixes;
+    this.fallback = unsupported.stream().mapToInt(Integer::intValue).toArray();
+    this.kinds = nfa.kinds.stream().mapToInt(Integer::intValue).toArray();
+    this.charClasses = nfa.charClasses.toArray(new CharClass[0]);
+    this.targets = nfa.targets.toArray(new int[0][]);
+    BitSet closure = new BitSet();
+    addClosure(initial, closure);
+    this.start = getState(closure);
+  }
+
+  /**
+   * Get the roles whose pattern matches the given name.
+   *
+   * @param name The name to match
+   * @return The matching roles, in the order they were given
+   */
+  @NonNull
+  List<Role> getMatchingRoles(@NonNull String name) {
+    BitSet matches = (BitSet) match(name).clone();
+    matchTrie(name, matches);
+    for (int i : fallback) {
+      if (roles[i].getPattern().matcher(name).matches()) {
+        matches.set(i);
+      }
+    }
+    List<Role> result = new ArrayList<>(matches.cardinality());
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      result.add(roles[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Checks whether the pattern of at least one role matches the given name.
+   *
+   * @param name The name to match
+   * @return True if a role matches
+   */
+  boolean matchesAny(@NonNull String name) {
+    if (!match(name).isEmpty()) {
+      return true;
+    }
+    BitSet matches = new BitSet();
+    matchTrie(name, matches);
+    if (!matches.isEmpty()) {
+      return true;
+    }
+    for (int i : fallback) {
+      if (roles[i].getPattern().matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Number of roles whose pattern is a literal name, matched with the prefix tree.
+   *
+   * @return the number of roles
+   */
+  int getLiteralCount() {
+    return literalCount;
+  }
+
+  /**
+   * Number of roles whose pattern is a literal prefix, matched with the prefix tree.
+   *
+   * @return the number of roles
+   */
+  int getPrefixCount() {
+    return prefixCount;
+  }
+
+  /**
+   * Number of roles matched with {@link Pattern} rather than with the automaton.
+   *
+   * @return the number of roles
+   */
+  int getFallbackCount() {
+    return fallback.length;
+  }
+
+  private void matchTrie(String name, BitSet matches) {
+    // . doesn't match line terminators, so a prefix only matches if the rest of the name has none
+    int lastLineTerminator = -1;
+    for (int i = name.length() - 1; i >= 0 && lastLineTerminator < 0; i--) {
+      if (!CharClass.DOT.contains(name.charAt(i))) {
+        lastLineTerminator = i;
+      }
+    }
+    TrieNode node = trie;
+    for (int i = 0; node != null; i++) {
+      if (i > lastLineTerminator) {
+        node.prefixes.forEach(matches::set);
+      }
+      if (i == name.length()) {
+        node.literals.forEach(matches::set);
+        break;
+      }
+      node = node.children.get(name.charAt(i));
+    }
+  }
+
+  private BitSet match(String name) {
+    State state = start;
+    for (int i = 0; i < name.length() && !state.isDead(); ) {
+      int c = name.codePointAt(i);
+      i += Character.charCount(c);
+      State next = state.transitions.get(c);
+      if (next == null) {
+        next = step(state, c);
+        if (stateCount.get() < MAX_STATES) {
+          state.transitions.put(c, next);
+        }
+      }
+      state = next;
+    }
+    return state.matches;
+  }
+
+  private State step(State state, int c) {
+    BitSet closure = new BitSet(kinds.length);
+    for (int s : state.nfaStates) {
+      if (kinds[s] == CHAR && charClasses[s].contains(c)) {
+        addClosure(targets[s][0], closure);
+      }
+    }
+    return getState(closure);
+  }
+
+  private void addClosure(int initial, BitSet closure) {
+    Deque<Integer> pending = new ArrayDeque<>();
+    pending.push(initial);
+    while (!pending.isEmpty()) {
+      int s = pending.pop();
+      if (closure.get(s)) {
+        continue;
+      }
+      closure.set(s);
+      if (kinds[s] == SPLIT) {
+        for (int target : targets[s]) {
+          pending.push(target);
+        }
+      }
+    }
+  }
+
+  private State getState(BitSet closure) {
+    StateKey key = new StateKey(closure.stream().filter(s -> kinds[s] != SPLIT).toArray());
+    State state = states.get(key);
+    if (state == null) {
+      state = new State(key.nfaStates);
+      if (stateCount.get() < MAX_STATES) {
+        State existing = states.putIfAbsent(key, state);
+        if (existing != null) {
+          return existing;
+        }
+        stateCount.incrementAndGet();
+      }
+    }
+    return state;
+  }
+
+  /**
+   * State of the deterministic automaton, the set of the states of the non-deterministic one it stands for.
+   */
+  private final class State {
+    private final int[] nfaStates;
+    private final BitSet matches = new BitSet();
+    private final Map<Integer, State> transitions = new ConcurrentHashMap<>();
+
+    State(int[] nfaStates) {
+      this.nfaStates = nfaStates;
+      for (int s : nfaStates) {
+        if (kinds[s] == MATCH) {
+          matches.set(targets[s][0]);
+        }
+      }
+    }
+
+    boolean isDead() {
+      return nfaStates.length == 0;
+    }
+  }
+
+  /**
+   * Node of the prefix tree, for the characters read so far.
+   */
+  private static final class TrieNode {
+    private final Map<Character, TrieNode> children = new HashMap<>();
+    private final List<Integer> literals = new ArrayList<>();
+    private final List<Integer> prefixes = new ArrayList<>();
+
+    TrieNode add(String text) {
+      TrieNode node = this;
+      for (int i = 0; i < text.length(); i++) {
+        node = node.children.computeIfAbsent(text.charAt(i), c -> new TrieNode());
+      }
+      return node;
+    }
+  }
+
+  private static final class StateKey {
+    private final int[] nfaStates;
+    private final int hash;
+
+    StateKey(int[] nfaStates) {
+      this.nfaStates = nfaStates;
+      this.hash = Arrays.hashCode(nfaStates);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof StateKey && Arrays.equals(nfaStates, ((StateKey) o).nfaStates);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * Non-deterministic automaton under construction. {@code CHAR} states consume a character of their class and go to
+   * their single target, {@code SPLIT} states go to all their targets without consuming anything and {@code MATCH}
+   * states store the index of the matching role as target.
+   */
+  private static final class Nfa {
+    private final List<Integer> kinds = new ArrayList<>();
+    private final List<CharClass> charClasses = new ArrayList<>();
+    private final List<int[]> targets = new ArrayList<>();
+
+    int add(int kind, CharClass charClass, int... target) {
+      kinds.add(kind);
+      charClasses.add(charClass);
+      targets.add(target);
+      return kinds.size() - 1;
+    }
+  }
+
+  /**
+   * Node of the syntax tree of a pattern.
+   */
+  private abstract static class Node {
+    /**
+     * Add the states matching this node to the automaton.
+     *
+     * @param nfa The automaton
+     * @param next The state to go to once this node has been matched
+     * @return The first state matching this node
+     */
+    abstract int compile(Nfa nfa, int next);
+  }
+
+  private static final class CharNode extends Node {
+    private final CharClass charClass;
+
+    CharNode(CharClass charClass) {
+      this.charClass = charClass;
+    }
+
+    @Override
+    int compile(Nfa nfa, int next) {
+      return nfa.add(CHAR, charClass, next);
+    }
+  }
+
+  private static final class ConcatNode extends Node {
+    private final List<Node> nodes;
+
+    ConcatNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    int compile(Nfa nfa, int next) {
+      int first = next;
+      for (int i = nodes.size() - 1; i >= 0; i--) {
+        first = nodes.get(i).compile(nfa, first);
+      }
+      return first;
+    }
+  }
+
+  private static final class AltNode extends Node {
+    private final List<Node> nodes;
+
+    AltNode(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+    @Override
+    int compile(Nfa nfa, int next) {
+      int[] firsts = new int[nodes.size()];
+      for (int i = 0; i < firsts.length; i++) {
+        firsts[i] = nodes.get(i).compile(nfa, next);
+      }
+      return nfa.add(SPLIT, null, firsts);
+    }
+  }
+
+  private static final class RepeatNode extends Node {
+    private final Node node;
+    private final boolean optional;
+    private final boolean repeated;
+
+    RepeatNode(Node node, boolean optional, boolean repeated) {
+      this.node = node;
+      this.optional = optional;
+      this.repeated = repeated;
+    }
+
+    @Override
+    int compile(Nfa nfa, int next) {
+      if (!repeated) {
+        return nfa.add(SPLIT, null, node.compile(nfa, next), next);
+      }
+      int loop = nfa.add(SPLIT, null, -1, next);
+      int body = node.compile(nfa, loop);
+      nfa.targets.get(loop)[0] = body;
+      return optional ? loop : body;
+    }
+  }
+
+  /**
+   * Set of code points, as sorted and disjoint inclusive ranges.
+   */
+  private static final class CharClass {
+    private static final CharClass DIGIT = new CharClass(new int[] {'0', '9'});
+    private static final CharClass WORD = new CharClass(new int[] {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'});
+    private static final CharClass SPACE = new CharClass(new int[] {'\t', '\r', ' ', ' '});
+    // line terminators: \n, \r, next line, line separator and paragraph separator
+    private static final CharClass DOT = new CharClass(new int[] {0x0a, 0x0a, 0x0d, 0x0d, 0x85, 0x85, 0x2028, 0x2029}).negate();
+
+    private final int[] ranges;
+
+    CharClass(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+    static CharClass of(int c) {
+      return new CharClass(new int[] {c, c});
+    }
+
+    boolean contains(int c) {
+      for (int i = 0; i < ranges.length && ranges[i] <= c; i += 2) {
+        if (c <= ranges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    CharClass negate() {
+      List<Integer> result = new ArrayList<>();
+      int from = 0;
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (ranges[i] > from) {
+          result.add(from);
+          result.add(ranges[i] - 1);
+        }
+        from = ranges[i + 1] + 1;
+      }
+      if (from <= Character.MAX_CODE_POINT) {
+        result.add(from);
+        result.add(Character.MAX_CODE_POINT);
+      }
+      return new CharClass(result.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    static CharClass union(List<int[]> ranges) {
+      ranges.sort((r1, r2) -> Integer.compare(r1[0], r2[0]));
+      List<Integer> result = new ArrayList<>();
+      for (int[] range : ranges) {
+        int last = result.size() - 1;
+        if (!result.isEmpty() && range[0] <= result.get(last) + 1) {
+          result.set(last, Math.max(result.get(last), range[1]));
+        } else {
+          result.add(range[0]);
+          result.add(range[1]);
+        }
+      }
+      return new CharClass(result.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    void addTo(List<int[]> target) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        target.add(new int[] {ranges[i], ranges[i + 1]});
+      }
+    }
+  }
+
+  /**
+   * Thrown when a pattern uses a construct which isn't supported.
+   */
+  private static final class UnsupportedPatternException extends Exception {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * Recursive descent parser for the supported subset of the {@link Pattern} syntax.
+   * The patterns have already been compiled by {@link Pattern}, so they are known to be valid.
+   */
+  private static final class Parser {
+    private final String pattern;
+    private int pos;
+    private int end;
+
+    Parser(String pattern) {
+      this.pattern = pattern;
+      this.end = pattern.length();
+    }
+
+    /**
+     * Parse the pattern.
+     *
+     * @return the syntax tree, {@code null} if the pattern isn't supported
+     */
+    Node parse() {
+      // with Matcher#matches, leading ^ and trailing $ don't change anything
+      if (pattern.startsWith("^")) {
+        pos++;
+      }
+      if (end > pos && pattern.charAt(end - 1) == '$' && !isEscaped(end - 1)) {
+        end--;
+      }
+      try {
+        Node node = parseAlternation();
+        return pos == end ? node : null;
+      } catch (UnsupportedPatternException e) {
+        return null;
+      }
+    }
+
+    private boolean isEscaped(int index) {
+      int backslashes = 0;
+      for (int i = index - 1; i >= 0 && pattern.charAt(i) == '\\'; i--) {
+        backslashes++;
+      }
+      return backslashes % 2 == 1;
+    }
+
+    private Node parseAlternation() throws UnsupportedPatternException {
+      List<Node> nodes = new ArrayList<>();
+      nodes.add(parseConcatenation());
+      while (pos < end && pattern.charAt(pos) == '|') {
+        pos++;
+        nodes.add(parseConcatenation());
+      }
+      return nodes.size() == 1 ? nodes.get(0) : new AltNode(nodes);
+    }
+
+    private Node parseConcatenation() throws UnsupportedPatternException {
+      List<Node> nodes = new ArrayList<>();
+      while (pos < end && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+        Node node = parseAtom();
+        if (pos < end && "*+?".indexOf(pattern.charAt(pos)) >= 0) {
+          char quantifier = pattern.charAt(pos++);
+          node = new RepeatNode(node, quantifier != '+', quantifier != '?');
+          // reluctant quantifiers match the same names, possessive ones don't
+          if (pos < end && pattern.charAt(pos) == '?') {
+            pos++;
+          }
+          if (pos < end && "*+?{".indexOf(pattern.charAt(pos)) >= 0) {
+            throw new UnsupportedPatternException();
+          }
+        }
+        nodes.add(node);
+      }
+      return nodes.size() == 1 ? nodes.get(0) : new ConcatNode(nodes);
+    }
+
+    private Node parseAtom() throws UnsupportedPatternException {
+      int c = pattern.codePointAt(pos);
+      pos += Character.charCount(c);
+      switch (c) {
+        case '(':
+          if (pattern.startsWith("?:", pos)) {
+            pos += 2;
+          } else if (pattern.startsWith("?", pos)) {
+            throw new UnsupportedPatternException();
+          }
+          Node node = parseAlternation();
+          if (pos >= end || pattern.charAt(pos) != ')') {
+            throw new UnsupportedPatternException();
+          }
+          pos++;
+          return node;
+        case '[':
+          return new CharNode(parseCharClass());
+        case '.':
+          return new CharNode(CharClass.DOT);
+        case '\\':
+          return new CharNode(parseEscape());
+        case '^':
+        case '$':
+        case '{':
+        case '}':
+        case ']':
+        case '*':
+        case '+':
+        case '?':
+          throw new UnsupportedPatternException();
+        default:
+          return new CharNode(CharClass.of(c));
+      }
+    }
+
+    private CharClass parseEscape() throws UnsupportedPatternException {
+      if (pos >= end) {
+        throw new UnsupportedPatternException();
+      }
+      int c = pattern.codePointAt(pos);
+      pos += Character.charCount(c);
+      switch (c) {
+        case 'd':
+          return CharClass.DIGIT;
+        case 'D':
+          return CharClass.DIGIT.negate();
+        case 'w':
+          return CharClass.WORD;
+        case 'W':
+          return CharClass.WORD.negate();
+        case 's':
+          return CharClass.SPACE;
+        case 'S':
+          return CharClass.SPACE.negate();
+        case 't':
+          return CharClass.of('\t');
+        case 'n':
+          return CharClass.of('\n');
+        case 'r':
+          return CharClass.of('\r');
+        case 'f':
+          return CharClass.of('\f');
+        default:
+          // any other letter or digit has a special meaning
+          if (Character.isLetterOrDigit(c)) {
+            throw new UnsupportedPatternException();
+          }
+          return CharClass.of(c);
+      }
+    }
+
+    private CharClass parseCharClass() throws UnsupportedPatternException {
+      boolean negated = pattern.startsWith("^", pos);
+      if (negated) {
+        pos++;
+      }
+      List<int[]> ranges = new ArrayList<>();
+      boolean first = true;
+      while (true) {
+        if (pos >= end) {
+          throw new UnsupportedPatternException();
+        }
+        int c = pattern.codePointAt(pos);
+        if (c == ']' && !first) {
+          pos++;
+          break;
+        }
+        // nested classes, intersections and a leading ] are not supported
+        if (c == '[' || c == ']' || pattern.startsWith("&&", pos)) {
+          throw new UnsupportedPatternException();
+        }
+        first = false;
+        CharClass element = parseClassElement();
+        int[] single = element.ranges.length == 2 && element.ranges[0] == element.ranges[1] ? element.ranges : null;
+        if (single != null && pattern.startsWith("-", pos) && pos + 1 < end && pattern.charAt(pos + 1) != ']') {
+          pos++;
+          if (pattern.charAt(pos) == '[') {
+            throw new UnsupportedPatternException();
+          }
+          CharClass upper = parseClassElement();
+          if (upper.ranges.length != 2 || upper.ranges[0] != upper.ranges[1] || upper.ranges[0] < single[0]) {
+            throw new UnsupportedPatternException();
+          }
+          ranges.add(new int[] {single[0], upper.ranges[0]});
+        } else if (single == null && pattern.startsWith("-", pos) && pos + 1 < end && pattern.charAt(pos + 1) != ']') {
+          throw new UnsupportedPatternException();
+        } else {
+          element.addTo(ranges);
+        }
+      }
+      CharClass result = CharClass.union(ranges);
+      return negated ? result.negate() : result;
+    }
+
+    private CharClass parseClassElement() throws UnsupportedPatternException {
+      int c = pattern.codePointAt(pos);
+      pos += Character.charCount(c);
+      if (c == '\\') {
+        return parseEscape();
+      }
+      return CharClass.of(c);
+    }
+  }
+}
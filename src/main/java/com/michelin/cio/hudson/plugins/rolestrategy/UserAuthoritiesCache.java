@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.SecurityRealm;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.rolestrategy.Settings;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+/**
+ * Cache of the authorities of the users, used when {@link Settings#TREAT_USER_AUTHORITIES_AS_ROLES} is enabled. Shared
+ * by all the {@link RoleMap}s.
+ *
+ * <p>Looking up a user in the security realm may be slow, e.g. with LDAP. Concurrent lookups of the same user wait for a
+ * single call to the security realm. Once an entry is older than {@link Settings#USER_DETAILS_CACHE_REFRESH_TIME_SEC},
+ * the next lookup returns it and reloads it in the background, so that users who are active are never looked up on the
+ * request thread again. Entries which haven't been refreshed expire after
+ * {@link Settings#USER_DETAILS_CACHE_EXPIRATION_TIME_SEC}.
+ *
+ * @since TBD
+ */
+@Restricted(NoExternalUse.class)
+public final class UserAuthoritiesCache {
+
+  private static final ThreadPoolExecutor refreshExecutor = createRefreshExecutor();
+
+  private static final LoadingCache<String, Set<String>> cache = Caffeine.newBuilder()
+      .maximumSize(Settings.USER_DETAILS_CACHE_MAX_SIZE)
+      .refreshAfterWrite(Settings.USER_DETAILS_CACHE_REFRESH_TIME_SEC, TimeUnit.SECONDS)
+      .expireAfterWrite(Settings.USER_DETAILS_CACHE_EXPIRATION_TIME_SEC, TimeUnit.SECONDS)
+      .executor(refreshExecutor)
+      .recordStats()
+      .build(UserAuthoritiesCache::load);
+
+  /**
+   * The security realm the cached authorities have been loaded from.
+   */
+  private static volatile SecurityRealm securityRealm;
+
+  private UserAuthoritiesCache() {
+    // Cannot be constructed
+  }
+
+  private static ThreadPoolExecutor createRefreshExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new NamingThreadFactory(new DaemonThreadFactory(), "UserAuthoritiesCache refresh"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Get the authorities of a user.
+   *
+   * @param username The name of the user
+   * @return The names of the authorities of the user, empty if the user doesn't exist
+   */
+  @NonNull
+  static Set<String> getAuthorities(@NonNull String username) {
+    SecurityRealm current = Jenkins.get().getSecurityRealm();
+    if (securityRealm != current) {
+      cache.invalidateAll();
+      securityRealm = current;
+    }
+    return cache.get(username);
+  }
+
+  private static Set<String> load(String username) {
+    try {
+      Set<String> authorities = new HashSet<>();
+      for (GrantedAuthority authority : Jenkins.get().getSecurityRealm().loadUserByUsername2(username).getAuthorities()) {
+        authorities.add(authority.getAuthority());
+      }
+      return Collections.unmodifiableSet(authorities);
+    } catch (UsernameNotFoundException e) {
+      return Collections.emptySet();
+    }
+  }
+
+  /**
+   * Discards all the cached authorities.
+   */
+  public static void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Hit count, miss count and load times of the cache. The average load penalty is the latency of the security realm.
+   *
+   * @return the statistics
+   */
+  @NonNull
+  public static CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Number of refreshes waiting for a thread.
+   *
+   * @return the number of pending refreshes
+   */
+  public static int getPendingRefreshCount() {
+    return refreshExecutor.getQueue().size();
+  }
+}
@@ -73,6 +73,65 @@ public class Settings {
   public static final int USER_DETAILS_CACHE_EXPIRATION_TIME_SEC = Integer
       .getInteger(Settings.class.getName() + ".userDetailsCacheExpircationTimeSec", 60);
 
+  /**
+   * Defines the age after which entries of the User details cache are reloaded in the background on their next use,
+   * while the cached value keeps being used. Defaults to half of {@link #USER_DETAILS_CACHE_EXPIRATION_TIME_SEC}.
+   * Changing of this option requires Jenkins restart.
+   *
+   * @since TBD
+   */
+  public static final int USER_DETAILS_CACHE_REFRESH_TIME_SEC = Math.max(1, Integer
+      .getInteger(Settings.class.getName() + ".userDetailsCacheRefreshTimeSec", USER_DETAILS_CACHE_EXPIRATION_TIME_SEC / 2));
+
+  /**
+   * Defines maximum size of the cache of the role maps matching an item name, one per role type. Changing of this
+   * option requires Jenkins restart.
+   *
+   * @since TBD
+   */
+  public static final int MATCHING_ROLE_MAP_CACHE_MAX_SIZE = Integer.getInteger(
+      Settings.class.getName() + ".matchingRoleMapCacheMaxSize", 2048);
+
+  /**
+   * Defines lifetime of entries in the cache of the role maps matching an item name. Entries are built again when the
+   * roles they depend on are modified, so this only bounds how long unused entries are kept. Changing of this option
+   * requires Jenkins restart.
+   *
+   * @since TBD
+   */
+  public static final int MATCHING_ROLE_MAP_CACHE_EXPIRATION_TIME_SEC = Integer.getInteger(
+      Settings.class.getName() + ".matchingRoleMapCacheExpirationTimeSec", 3600);
+
+  /**
+   * Defines maximum size of the permission decision cache. This cache stores the result of permission checks per
+   * user, item and permission until the roles are modified. {@code 0} disables the cache. Changing of this option
+   * requires Jenkins restart.
+   *
+   * @since TBD
+   */
+  public static final int PERMISSION_DECISION_CACHE_MAX_SIZE = Integer.getInteger(
+      Settings.class.getName() + ".permissionDecisionCacheMaxSize", 10000);
+
+  /**
+   * Defines lifetime of entries in the permission decision cache. Entries are discarded as soon as the roles are
+   * modified, or a permission is enabled or disabled. The expiration only limits how long the changes of the permissions
+   * of roles made without going through the strategy take to be visible.
+   * Changing of this option requires Jenkins restart.
+   *
+   * @since TBD
+   */
+  public static final int PERMISSION_DECISION_CACHE_EXPIRATION_TIME_SEC = Integer.getInteger(
+      Settings.class.getName() + ".permissionDecisionCacheExpirationTimeSec", 60);
+
+  /**
+   * Enables the memo of the ACLs and permission decisions computed while handling a single HTTP request, see
+   * {@link com.michelin.cio.hudson.plugins.rolestrategy.RequestAclMemo}. Changing of this option requires Jenkins
+   * restart.
+   *
+   * @since TBD
+   */
+  public static final boolean REQUEST_ACL_MEMO = Boolean.getBoolean(Settings.class.getName() + ".requestAclMemo");
+
   /**
    * Enabling processing of User Authorities. Alters the behavior of
    * {@link RoleMap#hasPermission(com.michelin.cio.hudson.plugins.rolestrategy.PermissionEntry, hudson.security.Permission,
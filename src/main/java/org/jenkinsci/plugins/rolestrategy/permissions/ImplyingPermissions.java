@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.rolestrategy.permissions;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.Permission;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Table of the permissions implying each permission, indexed by the ordinals of {@link PermissionMask}.
+ *
+ * <p>The closure of {@link Permission#impliedBy} is computed once for all the permissions of {@link Permission#getAll()}.
+ * The table is built again when a permission it doesn't know is looked up, e.g. after a plugin has been installed, or
+ * when one of the permissions of a chain has been enabled or disabled since the table was built.
+ *
+ * <p>Dangerous permissions (see {@link PermissionHelper#isDangerous(Permission)}) are implied by the same permissions as
+ * {@link Jenkins#ADMINISTER}.
+ */
+@Restricted(NoExternalUse.class)
+public final class ImplyingPermissions {
+
+  private static final Object LOCK = new Object();
+
+  private static volatile Entry[] table = new Entry[0];
+
+  private ImplyingPermissions() {
+    // Cannot be constructed
+  }
+
+  /**
+   * Get the mask of the enabled permissions implying a permission, including the permission itself.
+   *
+   * @param permission the permission
+   * @return the mask of the permissions implying {@code permission}
+   */
+  @NonNull
+  public static PermissionMask of(@NonNull Permission permission) {
+    int ordinal = PermissionMask.ordinal(permission);
+    Entry[] current = table;
+    Entry entry = ordinal < current.length ? current[ordinal] : null;
+    if (entry == null || !entry.isValid()) {
+      entry = rebuild(permission, ordinal);
+    }
+    return entry.mask;
+  }
+
+  private static Entry rebuild(Permission permission, int ordinal) {
+    synchronized (LOCK) {
+      Entry[] current = table;
+      Entry entry = ordinal < current.length ? current[ordinal] : null;
+      if (entry != null && entry.isValid()) {
+        return entry;
+      }
+      List<Permission> all = new ArrayList<>(Permission.getAll());
+      all.add(permission);
+      int size = current.length;
+      for (Permission p : all) {
+        size = Math.max(size, PermissionMask.ordinal(p) + 1);
+      }
+      Entry[] updated = new Entry[size];
+      Entry administer = new Entry(Jenkins.ADMINISTER);
+      for (Permission p : all) {
+        updated[PermissionMask.ordinal(p)] = PermissionHelper.isDangerous(p) ? administer : new Entry(p);
+      }
+      updated[PermissionMask.ordinal(Jenkins.ADMINISTER)] = administer;
+      table = updated;
+      return updated[ordinal];
+    }
+  }
+
+  /**
+   * The permissions implying a permission, with the enabled state of the chain they were computed from.
+   */
+  private static final class Entry {
+    private final Permission[] chain;
+    private final long enabled;
+    private final PermissionMask mask;
+
+    Entry(Permission permission) {
+      List<Permission> permissions = new ArrayList<>();
+      for (Permission p = permission; p != null; p = p.impliedBy) {
+        permissions.add(p);
+      }
+      this.chain = permissions.toArray(new Permission[0]);
+      long enabledBits = 0;
+      Set<Permission> implying = new HashSet<>();
+      for (int i = 0; i < chain.length; i++) {
+        if (chain[i].getEnabled()) {
+          if (i < 64) {
+            enabledBits |= 1L << i;
+          }
+          implying.add(chain[i]);
+        }
+      }
+      this.enabled = enabledBits;
+      this.mask = PermissionMask.of(implying);
+    }
+
+    /**
+     * Checks that no permission of the chain has been enabled or disabled. Chains are only a few permissions long.
+     */
+    boolean isValid() {
+      for (int i = 0; i < chain.length && i < 64; i++) {
+        if (chain[i].getEnabled() != ((enabled & (1L << i)) != 0)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
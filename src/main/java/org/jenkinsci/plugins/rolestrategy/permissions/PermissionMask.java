@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2026, Jenkins project contributors.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.rolestrategy.permissions;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.security.Permission;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Immutable set of {@link Permission}s stored as a bitmask.
+ *
+ * <p>Each permission gets an ordinal from a registry built from {@link Permission#getAll()}. The registry is append-only,
+ * permissions added later by plugins get the next free ordinals, so masks created before a refresh remain valid.
+ */
+@Restricted(NoExternalUse.class)
+public final class PermissionMask {
+
+  public static final PermissionMask EMPTY = new PermissionMask(new long[0]);
+
+  private static final Object REGISTRY_LOCK = new Object();
+
+  /**
+   * Ordinals of the known permissions. The map is never modified once published, a new one is built when permissions are
+   * added.
+   */
+  private static volatile Map<Permission, Integer> ordinals = new IdentityHashMap<>();
+
+  private final long[] words;
+
+  private PermissionMask(long[] words) {
+    this.words = words;
+  }
+
+  /**
+   * Create a mask holding the given permissions.
+   *
+   * @param permissions the permissions, {@code null} entries are ignored
+   * @return the mask
+   */
+  @NonNull
+  public static PermissionMask of(@NonNull Collection<Permission> permissions) {
+    if (permissions.isEmpty()) {
+      return EMPTY;
+    }
+    long[] words = new long[0];
+    for (Permission p : permissions) {
+      if (p == null) {
+        continue;
+      }
+      int ordinal = register(p);
+      int index = ordinal >>> 6;
+      if (index >= words.length) {
+        words = Arrays.copyOf(words, index + 1);
+      }
+      words[index] |= 1L << ordinal;
+    }
+    return new PermissionMask(words);
+  }
+
+  /**
+   * Checks if the mask holds the given permission.
+   *
+   * @param permission the permission
+   * @return true if the permission is part of the mask
+   */
+  public boolean contains(Permission permission) {
+    Integer ordinal = ordinals.get(permission);
+    if (ordinal == null) {
+      return false;
+    }
+    int index = ordinal >>> 6;
+    return index < words.length && (words[index] & (1L << ordinal)) != 0;
+  }
+
+  /**
+   * Checks if both masks have at least one permission in common.
+   *
+   * @param other the other mask
+   * @return true if the masks intersect
+   */
+  public boolean intersects(PermissionMask other) {
+    long[] otherWords = other.words;
+    int length = Math.min(words.length, otherWords.length);
+    for (int i = 0; i < length; i++) {
+      if ((words[i] & otherWords[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isEmpty() {
+    return words.length == 0;
+  }
+
+  /**
+   * Get the ordinal of a permission, registering it if needed.
+   *
+   * @param permission the permission
+   * @return the ordinal, which never changes
+   */
+  static int ordinal(@NonNull Permission permission) {
+    return register(permission);
+  }
+
+  /**
+   * Get the ordinal of a permission, refreshing the registry from {@link Permission#getAll()} if the permission is not yet
+   * known.
+   */
+  private static int register(Permission permission) {
+    Integer ordinal = ordinals.get(permission);
+    if (ordinal != null) {
+      return ordinal;
+    }
+    synchronized (REGISTRY_LOCK) {
+      Map<Permission, Integer> current = ordinals;
+      ordinal = current.get(permission);
+      if (ordinal != null) {
+        return ordinal;
+      }
+      Map<Permission, Integer> updated = new IdentityHashMap<>(current);
+      for (Permission p : Permission.getAll()) {
+        updated.putIfAbsent(p, updated.size());
+      }
+      // Permissions are registered in Permission.getAll() when created, but don't rely on it
+      updated.putIfAbsent(permission, updated.size());
+      ordinals = updated;
+      return updated.get(permission);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PermissionMask)) {
+      return false;
+    }
+    long[] otherWords = ((PermissionMask) obj).words;
+    int length = Math.max(words.length, otherWords.length);
+    for (int i = 0; i < length; i++) {
+      long word = i < words.length ? words[i] : 0;
+      long otherWord = i < otherWords.length ? otherWords[i] : 0;
+      if (word != otherWord) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int length = words.length;
+    while (length > 0 && words[length - 1] == 0) {
+      length--;
+    }
+    return Arrays.hashCode(Arrays.copyOf(words, length));
+  }
+}
@@ -0,0 +1,70 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import hudson.model.Computer;
+import hudson.security.ACL;
+import hudson.slaves.DumbSlave;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class AgentRoleMapListenerTest {
+
+  private JenkinsRule jenkinsRule;
+  private RoleMap agentRoles;
+  private Role agentRole;
+
+  @BeforeEach
+  void setUp(JenkinsRule jenkinsRule) {
+    this.jenkinsRule = jenkinsRule;
+    RoleBasedAuthorizationStrategy rbas = new RoleBasedAuthorizationStrategy();
+    jenkinsRule.jenkins.setAuthorizationStrategy(rbas);
+    agentRoles = rbas.getRoleMap(RoleType.Slave);
+    agentRole = new Role("cloud", "cloud-.*", Set.of(Computer.BUILD.getId()), "");
+    agentRoles.addRole(agentRole);
+  }
+
+  @Test
+  void matchingRolesAreKeptWhileTheAgentExists() throws Exception {
+    DumbSlave agent = jenkinsRule.createSlave("cloud-1", null, null);
+    RoleMap pinned = agentRoles.getPinnedMatchingRoleMap("cloud-1");
+    assertThat(pinned.getRoles(), contains(agentRole));
+
+    jenkinsRule.jenkins.removeNode(agent);
+    assertThat(agentRoles.getPinnedMatchingRoleMap("cloud-1"), nullValue());
+  }
+
+  @Test
+  void pinnedRoleMapsFollowRoleChanges() throws Exception {
+    jenkinsRule.createSlave("cloud-2", null, null);
+    Role other = new Role("all", ".*", Set.of(Computer.BUILD.getId()), "");
+    agentRoles.addRole(other);
+    assertThat(agentRoles.getPinnedMatchingRoleMap("cloud-2").getRoles(), contains(other, agentRole));
+  }
+
+  @Test
+  void agentsExistingBeforeTheStrategyArePinned() throws Exception {
+    jenkinsRule.createSlave("cloud-3", null, null);
+    RoleBasedAuthorizationStrategy rbas = new RoleBasedAuthorizationStrategy();
+    RoleMap newAgentRoles = rbas.getRoleMap(RoleType.Slave);
+    assertThat(newAgentRoles.getPinnedMatchingRoleMap("cloud-3").getRoles(), empty());
+    assertThat(newAgentRoles.getPinnedMatchingRoleMap(""), notNullValue());
+  }
+
+  @Test
+  void permissionChecksDontPinAgents() {
+    RoleBasedAuthorizationStrategy rbas = (RoleBasedAuthorizationStrategy) jenkinsRule.jenkins.getAuthorizationStrategy();
+    agentRoles.unpinMatchingRoleMap("");
+    rbas.getACL(jenkinsRule.jenkins.getComputer("")).hasPermission2(ACL.SYSTEM2, Computer.BUILD);
+    assertThat(agentRoles.getPinnedMatchingRoleMap(""), nullValue());
+  }
+}
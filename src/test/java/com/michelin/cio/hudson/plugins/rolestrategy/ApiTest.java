@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.htmlunit.HttpMethod;
 import org.htmlunit.Page;
@@ -685,4 +686,134 @@ class ApiTest {
       }
     }
   }
+
+  @Test
+  void testExportedRolesAndAssignments() throws Exception {
+    rbas.doAssignGroupRole("projectRoles", "developers", "dev\"team");
+    webClient.login("adminUser", "adminUser");
+
+    String roles = webClient.goTo("role-strategy/strategy/getAllRoles?type=projectRoles", "application/json")
+        .getWebResponse().getContentAsString();
+    assertEquals("{\"developers\":[{\"sid\":\"developerUser\",\"type\":\"USER\"},"
+        + "{\"sid\":\"dev\\\"team\",\"type\":\"GROUP\"}]}", roles);
+
+    String assignments = webClient.goTo("role-strategy/strategy/getRoleAssignments?type=projectRoles", "application/json")
+        .getWebResponse().getContentAsString();
+    assertEquals("[{\"name\":\"developerUser\",\"type\":\"USER\",\"roles\":[\"developers\"]},"
+        + "{\"name\":\"dev\\\"team\",\"type\":\"GROUP\",\"roles\":[\"developers\"]}]", assignments);
+  }
+
+  @Test
+  void testQueryRolesAndAssignments() throws Exception {
+    rbas.doAssignGroupRole("projectRoles", "developers", "devs");
+    webClient.login("adminUser", "adminUser");
+
+    String roles = webClient.goTo("role-strategy/strategy/queryRoles?type=projectRoles&roleName=dev*&sidType=GROUP", "application/json")
+        .getWebResponse().getContentAsString();
+    assertEquals("{\"roles\":[{\"name\":\"developers\",\"pattern\":\".*\",\"sids\":[{\"sid\":\"devs\",\"type\":\"GROUP\"}]}]}",
+        roles);
+
+    String firstPage = webClient.goTo("role-strategy/strategy/queryRoleAssignments?type=projectRoles&sidPrefix=dev&limit=1",
+        "application/json").getWebResponse().getContentAsString();
+    assertEquals("{\"assignments\":[{\"name\":\"developerUser\",\"type\":\"USER\",\"roles\":[\"developers\"]}],"
+        + "\"nextCursor\":\"USER:developerUser\"}", firstPage);
+    String secondPage = webClient.goTo("role-strategy/strategy/queryRoleAssignments?type=projectRoles&sidPrefix=dev&limit=1"
+        + "&cursor=USER:developerUser", "application/json").getWebResponse().getContentAsString();
+    assertEquals("{\"assignments\":[{\"name\":\"devs\",\"type\":\"GROUP\",\"roles\":[\"developers\"]}],"
+        + "\"nextCursor\":\"GROUP:devs\"}", secondPage);
+
+    Page invalid = webClient.getPage(new WebRequest(new URL(jenkinsRule.jenkins.getRootUrl()
+        + "role-strategy/strategy/queryRoleAssignments?type=projectRoles&sidType=ROBOT"), HttpMethod.GET));
+    assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, invalid.getWebResponse().getStatusCode());
+  }
+
+  @Test
+  void testConditionalGetOfRoles() throws Exception {
+    webClient.login("adminUser", "adminUser");
+    URL url = new URL(jenkinsRule.jenkins.getRootUrl() + "role-strategy/strategy/getRoleAssignments?type=projectRoles");
+
+    Page page = webClient.getPage(new WebRequest(url, HttpMethod.GET));
+    assertEquals(HttpURLConnection.HTTP_OK, page.getWebResponse().getStatusCode());
+    String etag = page.getWebResponse().getResponseHeaderValue("ETag");
+    assertThat(etag, notNullValue());
+
+    WebRequest conditional = new WebRequest(url, HttpMethod.GET);
+    conditional.setAdditionalHeader("If-None-Match", etag);
+    page = webClient.getPage(conditional);
+    assertEquals(HttpURLConnection.HTTP_NOT_MODIFIED, page.getWebResponse().getStatusCode());
+    assertEquals("", page.getWebResponse().getContentAsString());
+
+    rbas.doAssignUserRole("projectRoles", "developers", "newDeveloper");
+    page = webClient.getPage(conditional);
+    assertEquals(HttpURLConnection.HTTP_OK, page.getWebResponse().getStatusCode());
+    assertNotEquals(etag, page.getWebResponse().getResponseHeaderValue("ETag"));
+  }
+
+  private Page postBulk(String operations) throws IOException {
+    WebRequest request = new WebRequest(new URL(jenkinsRule.jenkins.getRootUrl() + "role-strategy/strategy/bulk"), HttpMethod.POST);
+    request.setAdditionalHeader("Content-Type", "application/json");
+    request.setRequestBody("{\"operations\":[" + operations + "]}");
+    return webClient.getPage(request);
+  }
+
+  @Test
+  void testBulk() throws Exception {
+    Page page = postBulk("{\"op\":\"addTemplate\",\"name\":\"tester\",\"permissionIds\":\"hudson.model.Item.Read\"},"
+        + "{\"op\":\"addRole\",\"type\":\"projectRoles\",\"roleName\":\"testers\",\"pattern\":\"test.*\",\"template\":\"tester\"},"
+        + "{\"op\":\"assignRole\",\"type\":\"projectRoles\",\"roleName\":\"testers\",\"sid\":\"alice\",\"sidType\":\"USER\"},"
+        + "{\"op\":\"assignRole\",\"type\":\"projectRoles\",\"roleName\":\"testers\",\"sid\":\"qa\",\"sidType\":\"GROUP\"},"
+        + "{\"op\":\"unassignRole\",\"type\":\"projectRoles\",\"roleName\":\"developers\",\"sid\":\"developerUser\","
+        + "\"sidType\":\"USER\"},"
+        + "{\"op\":\"deleteSid\",\"type\":\"slaveRoles\",\"sid\":\"developerUser\",\"sidType\":\"USER\"},"
+        + "{\"op\":\"removeRole\",\"type\":\"globalRoles\",\"roleName\":\"agentAdminRole\"}");
+    assertEquals(HttpURLConnection.HTTP_OK, page.getWebResponse().getStatusCode());
+    JSONObject response = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+    assertTrue(response.getBoolean("applied"));
+    assertEquals("{\"index\":2,\"op\":\"assignRole\",\"status\":\"ok\"}", response.getJSONArray("results").getString(2));
+
+    Role testers = rbas.getRoleMap(RoleType.Project).getRole("testers");
+    assertThat(testers, notNullValue());
+    assertEquals("test.*", testers.getPattern().pattern());
+    assertTrue(testers.getPermissions().contains(Item.READ));
+    assertEquals(Set.of(new PermissionEntry(AuthorizationType.USER, "alice"), new PermissionEntry(AuthorizationType.GROUP, "qa")),
+        rbas.getRoleMap(RoleType.Project).getSidEntriesForRole("testers"));
+    assertTrue(rbas.getRoleMap(RoleType.Project).getSidEntriesForRole("developers").isEmpty());
+    assertTrue(rbas.getRoleMap(RoleType.Slave).getSidEntriesForRole("developerAgentRole").isEmpty());
+    assertThat(rbas.getRoleMap(RoleType.Global).getRole("agentAdminRole"), nullValue());
+  }
+
+  @Test
+  void testBulkIsAtomic() throws Exception {
+    Page page = postBulk("{\"op\":\"addRole\",\"type\":\"projectRoles\",\"roleName\":\"testers\"},"
+        + "{\"op\":\"assignRole\",\"type\":\"projectRoles\",\"roleName\":\"missing\",\"sid\":\"alice\",\"sidType\":\"USER\"}");
+    assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, page.getWebResponse().getStatusCode());
+    JSONObject response = JSONObject.fromObject(page.getWebResponse().getContentAsString());
+    assertFalse(response.getBoolean("applied"));
+    assertEquals("skipped", response.getJSONArray("results").getJSONObject(0).getString("status"));
+    assertEquals("error", response.getJSONArray("results").getJSONObject(1).getString("status"));
+    assertThat(rbas.getRoleMap(RoleType.Project).getRole("testers"), nullValue());
+
+    // item admins may modify the project roles, but not the global roles
+    webClient.login("itemAdminUser", "itemAdminUser");
+    page = postBulk("{\"op\":\"addRole\",\"type\":\"projectRoles\",\"roleName\":\"testers\"},"
+        + "{\"op\":\"assignRole\",\"type\":\"globalRoles\",\"roleName\":\"adminRole\",\"sid\":\"itemAdminUser\","
+        + "\"sidType\":\"USER\"}");
+    assertEquals(HttpURLConnection.HTTP_FORBIDDEN, page.getWebResponse().getStatusCode());
+    assertThat(rbas.getRoleMap(RoleType.Project).getRole("testers"), nullValue());
+    assertFalse(rbas.getRoleMap(RoleType.Global).getSidEntriesForRole("adminRole")
+        .contains(new PermissionEntry(AuthorizationType.USER, "itemAdminUser")));
+  }
+
+  @Test
+  void testBulkRejectsMissingRoles() throws Exception {
+    Page page = postBulk("{\"op\":\"removeRole\",\"type\":\"projectRoles\",\"roleName\":\"missing\"},"
+        + "{\"op\":\"unassignRole\",\"type\":\"projectRoles\",\"roleName\":\"missing\",\"sid\":\"alice\","
+        + "\"sidType\":\"USER\"},"
+        + "{\"op\":\"removeRole\",\"type\":\"projectRoles\"}");
+    assertEquals(HttpURLConnection.HTTP_BAD_REQUEST, page.getWebResponse().getStatusCode());
+    JSONArray results = JSONObject.fromObject(page.getWebResponse().getContentAsString()).getJSONArray("results");
+    assertEquals("No role with name missing", results.getJSONObject(0).getString("message"));
+    assertEquals("No role with name missing", results.getJSONObject(1).getString("message"));
+    assertEquals("Missing roleName", results.getJSONObject(2).getString("message"));
+  }
 }
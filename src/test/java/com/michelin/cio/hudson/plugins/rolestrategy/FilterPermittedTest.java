@@ -0,0 +1,94 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.security.Permission;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.springframework.security.core.Authentication;
+
+@WithJenkins
+class FilterPermittedTest {
+
+  private RoleBasedAuthorizationStrategy rbas;
+  private final List<Item> items = new ArrayList<>();
+  private FreeStyleProject teamAJob;
+  private FreeStyleProject hiddenJob;
+
+  @BeforeEach
+  void setUp(JenkinsRule jenkinsRule) throws Exception {
+    jenkinsRule.jenkins.setSecurityRealm(jenkinsRule.createDummySecurityRealm());
+    rbas = new RoleBasedAuthorizationStrategy();
+    jenkinsRule.jenkins.setAuthorizationStrategy(rbas);
+    Folder teamA = jenkinsRule.jenkins.createProject(Folder.class, "TeamA");
+    Folder teamB = jenkinsRule.jenkins.createProject(Folder.class, "TeamB");
+    teamAJob = teamA.createProject(FreeStyleProject.class, "job");
+    hiddenJob = teamB.createProject(FreeStyleProject.class, "job");
+    items.add(teamA);
+    items.add(teamB);
+    items.add(teamAJob);
+    items.add(hiddenJob);
+    items.add(jenkinsRule.createFreeStyleProject("top"));
+
+    Role global = new Role("reader", ".*", Set.of(Jenkins.READ.getId()), "");
+    rbas.getRoleMap(RoleType.Global).addRole(global);
+    rbas.getRoleMap(RoleType.Global).assignRole(global, PermissionEntry.group("authenticated"));
+    Role teamARole = new Role("teamA", "TeamA(/.*)?", Set.of(Item.READ.getId(), Item.BUILD.getId()), "");
+    rbas.getRoleMap(RoleType.Project).addRole(teamARole);
+    rbas.getRoleMap(RoleType.Project).assignRole(teamARole, PermissionEntry.user("alice"));
+    // bob can see the jobs of TeamB, but not the folder itself
+    Role teamBJobs = new Role("teamBJobs", "TeamB/.*", Set.of(Item.READ.getId()), "");
+    rbas.getRoleMap(RoleType.Project).addRole(teamBJobs);
+    rbas.getRoleMap(RoleType.Project).assignRole(teamBJobs, PermissionEntry.user("bob"));
+  }
+
+  private List<Item> filterOneByOne(Authentication a, Permission permission) {
+    List<Item> permitted = new ArrayList<>();
+    for (Item item : items) {
+      if (item.hasPermission2(a, permission)) {
+        permitted.add(item);
+      }
+    }
+    return permitted;
+  }
+
+  @Test
+  void sameResultAsIndividualChecks() {
+    for (String user : List.of("alice", "bob", "carol")) {
+      Authentication a = User.getById(user, true).impersonate2();
+      try (ACLContext ignored = ACL.as2(a)) {
+        for (Permission permission : List.of(Item.READ, Item.BUILD, Item.DISCOVER)) {
+          assertThat(user + " " + permission.getId(), rbas.filterPermitted(a, permission, items), is(filterOneByOne(a, permission)));
+        }
+      }
+    }
+  }
+
+  @Test
+  void parentsAreChecked() {
+    Authentication alice = User.getById("alice", true).impersonate2();
+    Authentication bob = User.getById("bob", true).impersonate2();
+    try (ACLContext ignored = ACL.as2(alice)) {
+      assertThat(rbas.filterPermitted(alice, Item.BUILD, items), contains(items.get(0), teamAJob));
+    }
+    try (ACLContext ignored = ACL.as2(bob)) {
+      assertThat(rbas.filterPermitted(bob, Item.READ, List.of(hiddenJob)), empty());
+    }
+  }
+}
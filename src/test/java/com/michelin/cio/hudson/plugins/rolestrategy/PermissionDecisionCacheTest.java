@@ -0,0 +1,123 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.security.Permission;
+import hudson.security.PermissionScope;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.springframework.security.core.Authentication;
+
+@WithJenkins
+class PermissionDecisionCacheTest {
+
+  private RoleBasedAuthorizationStrategy rbas;
+  private FreeStyleProject project;
+  private Authentication alice;
+
+  private JenkinsRule jenkinsRule;
+
+  @BeforeEach
+  void setUp(JenkinsRule jenkinsRule) throws Exception {
+    this.jenkinsRule = jenkinsRule;
+    jenkinsRule.jenkins.setSecurityRealm(jenkinsRule.createDummySecurityRealm());
+    rbas = new RoleBasedAuthorizationStrategy();
+    jenkinsRule.jenkins.setAuthorizationStrategy(rbas);
+    project = jenkinsRule.createFreeStyleProject("project");
+    Role role = new Role("builder", "project", Set.of(Item.BUILD.getId()), "");
+    rbas.getRoleMap(RoleType.Project).addRole(role);
+    rbas.getRoleMap(RoleType.Project).assignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+    alice = User.getById("alice", true).impersonate2();
+  }
+
+  @Test
+  void repeatedChecksAreCached() {
+    assertTrue(project.hasPermission2(alice, Item.BUILD));
+    long hits = PermissionDecisionCache.getHitCount();
+    assertTrue(project.hasPermission2(alice, Item.BUILD));
+    assertThat(PermissionDecisionCache.getHitCount(), greaterThan(hits));
+  }
+
+  @Test
+  void modificationsInvalidateDecisions() {
+    assertTrue(project.hasPermission2(alice, Item.BUILD));
+    Role role = rbas.getRoleMap(RoleType.Project).getRole("builder");
+    rbas.getRoleMap(RoleType.Project).unAssignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+    assertFalse(project.hasPermission2(alice, Item.BUILD));
+
+    rbas.getRoleMap(RoleType.Project).assignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+    assertTrue(project.hasPermission2(alice, Item.BUILD));
+  }
+
+  @Test
+  void templateChangesInvalidateDecisions() throws Exception {
+    Role role = new Role("templated", "project", Collections.emptySet(), "", "builders");
+    rbas.getRoleMap(RoleType.Project).addRole(role);
+    rbas.getRoleMap(RoleType.Project).assignRole(role, new PermissionEntry(AuthorizationType.USER, "bob"));
+    rbas.doAddTemplate("builders", Item.BUILD.getId(), true);
+    Authentication bob = User.getById("bob", true).impersonate2();
+    assertTrue(project.hasPermission2(bob, Item.BUILD));
+
+    rbas.doAddTemplate("builders", Item.CANCEL.getId(), true);
+    assertFalse(project.hasPermission2(bob, Item.BUILD));
+    assertTrue(project.hasPermission2(bob, Item.CANCEL));
+  }
+
+  @Test
+  void toggledPermissionsInvalidateDecisions() {
+    Permission custom = new Permission(Item.PERMISSIONS, "PermissionDecisionCacheTest", null, Item.CONFIGURE, PermissionScope.ITEM);
+    Role role = new Role("custom", "project", Set.of(custom.getId()), "");
+    rbas.getRoleMap(RoleType.Project).addRole(role);
+    rbas.getRoleMap(RoleType.Project).assignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+    assertTrue(project.hasPermission2(alice, custom));
+
+    custom.setEnabled(false);
+    try {
+      assertFalse(project.hasPermission2(alice, custom));
+    } finally {
+      custom.setEnabled(true);
+    }
+    assertTrue(project.hasPermission2(alice, custom));
+  }
+
+  @Test
+  void ancestorChecksAreCached() throws Exception {
+    Folder folder = jenkinsRule.jenkins.createProject(Folder.class, "folder");
+    FreeStyleProject first = folder.createProject(FreeStyleProject.class, "first");
+    FreeStyleProject second = folder.createProject(FreeStyleProject.class, "second");
+    Role role = new Role("reader", "folder(/.*)?", Set.of(Item.READ.getId()), "");
+    rbas.getRoleMap(RoleType.Project).addRole(role);
+    rbas.getRoleMap(RoleType.Project).assignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+
+    try (ACLContext ignored = ACL.as2(alice)) {
+      assertTrue(first.hasPermission(Item.READ));
+      long hits = PermissionDecisionCache.getHitCount();
+      // the decision on the folder is reused for the second project
+      assertTrue(second.hasPermission(Item.READ));
+      assertThat(PermissionDecisionCache.getHitCount(), greaterThan(hits));
+    }
+
+    rbas.getRoleMap(RoleType.Project).addRole(new Role("other", "folder/.*", Set.of(Item.READ.getId()), ""));
+    rbas.getRoleMap(RoleType.Project).unAssignRole(role, new PermissionEntry(AuthorizationType.USER, "alice"));
+    rbas.getRoleMap(RoleType.Project).assignRole(rbas.getRoleMap(RoleType.Project).getRole("other"),
+        new PermissionEntry(AuthorizationType.USER, "alice"));
+    try (ACLContext ignored = ACL.as2(alice)) {
+      // alice can't read the folder anymore
+      assertFalse(second.hasPermission(Item.READ));
+    }
+  }
+}
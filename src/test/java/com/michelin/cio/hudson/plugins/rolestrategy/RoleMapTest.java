@@ -0,0 +1,200 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import hudson.model.Item;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class RoleMapTest {
+
+  private RoleMap roleMap;
+  private Role teamA;
+  private Role teamB;
+
+  @BeforeEach
+  void setUp(JenkinsRule jenkinsRule) {
+    roleMap = new RoleMap(new TreeMap<>());
+    teamA = new Role("teamA", "TeamA/.*", Collections.emptySet());
+    teamB = new Role("teamB", "TeamB/.*", Collections.emptySet());
+    roleMap.addRole(teamA);
+    roleMap.addRole(teamB);
+  }
+
+  @Test
+  void matchingRoleMapsAreCached() {
+    RoleMap matching = roleMap.newMatchingRoleMap("TeamA/job");
+    assertThat(matching.getRoles(), contains(teamA));
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job"), sameInstance(matching));
+    assertThat(roleMap.getMatchingRoleMapCacheStats().hitCount(), is(1L));
+    assertThat(roleMap.getMatchingRoleMapCacheStats().missCount(), is(1L));
+  }
+
+  @Test
+  void literalAndPrefixPatternsAreCountedAsFastPath() {
+    assertThat(roleMap.getFastPathPatternCount(), is(2));
+    roleMap.addRole(new Role("job", "job", Collections.emptySet()));
+    roleMap.addRole(new Role("jobs", "job[0-9]+", Collections.emptySet()));
+    assertThat(roleMap.getFastPathPatternCount(), is(3));
+    roleMap.removeRole(teamA);
+    assertThat(roleMap.getFastPathPatternCount(), is(2));
+  }
+
+  @Test
+  void assignmentsOnlyInvalidateMatchingRoleMapsContainingTheRole() {
+    RoleMap matchingA = roleMap.newMatchingRoleMap("TeamA/job");
+    RoleMap matchingB = roleMap.newMatchingRoleMap("TeamB/job");
+
+    roleMap.assignRole(teamB, PermissionEntry.user("alice"));
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job"), sameInstance(matchingA));
+    RoleMap updatedB = roleMap.newMatchingRoleMap("TeamB/job");
+    assertThat(updatedB, not(sameInstance(matchingB)));
+    assertThat(updatedB.getSidEntriesForRole("teamB"), contains(PermissionEntry.user("alice")));
+
+    roleMap.removeRole(teamB);
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job"), sameInstance(matchingA));
+    assertThat(roleMap.newMatchingRoleMap("TeamB/job").getRoles(), empty());
+  }
+
+  @Test
+  void addedRolesInvalidateAllMatchingRoleMaps() {
+    RoleMap matching = roleMap.newMatchingRoleMap("TeamA/job");
+    Role all = new Role("all", ".*", Collections.emptySet());
+    roleMap.addRole(all);
+    RoleMap updated = roleMap.newMatchingRoleMap("TeamA/job");
+    assertThat(updated, not(sameInstance(matching)));
+    assertThat(updated.getRoles(), contains(all, teamA));
+  }
+
+  @Test
+  void matchingRoleMapsAreReadOnlyViews() {
+    roleMap.assignRole(teamA, PermissionEntry.user("alice"));
+    roleMap.assignRole(teamB, PermissionEntry.user("bob"));
+    RoleMap matching = roleMap.newMatchingRoleMap("TeamA/job");
+    assertThat(matching.getSidEntries(), contains(PermissionEntry.user("alice")));
+    assertThat(matching.getRole("teamB"), nullValue());
+    assertThat(matching.hasRole(teamB), is(false));
+    assertThrows(UnsupportedOperationException.class, () -> matching.assignRole(teamA, PermissionEntry.user("bob")));
+    assertThrows(UnsupportedOperationException.class, () -> matching.removeRole(teamA));
+  }
+
+  @Test
+  void createPermissionWithoutItem() {
+    Role creator = new Role("creator", "TeamC/.*", Set.of(Item.CREATE.getId()), "");
+    roleMap.addRole(creator);
+    roleMap.assignRole(creator, PermissionEntry.group("creators"));
+    assertThat(roleMap.hasPermission(PermissionEntry.group("creators"), Item.CREATE, RoleType.Project, null), is(true));
+    assertThat(roleMap.hasPermission(PermissionEntry.user("creators"), Item.CREATE, RoleType.Project, null), is(false));
+    assertThat(roleMap.hasPermission(PermissionEntry.user("alice"), Item.CREATE, RoleType.Project, null), is(false));
+
+    roleMap.assignRole(teamA, PermissionEntry.user("alice"));
+    assertThat(roleMap.hasPermission(PermissionEntry.user("alice"), Item.CREATE, RoleType.Project, null), is(false));
+    roleMap.assignRole(creator, new PermissionEntry(AuthorizationType.EITHER, "alice"));
+    assertThat(roleMap.hasPermission(PermissionEntry.user("alice"), Item.CREATE, RoleType.Project, null), is(true));
+    roleMap.unAssignRole(creator, new PermissionEntry(AuthorizationType.EITHER, "alice"));
+    assertThat(roleMap.hasPermission(PermissionEntry.user("alice"), Item.CREATE, RoleType.Project, null), is(false));
+  }
+
+  @Test
+  void unassignedSidsAreRejected() {
+    Role reader = new Role("reader", "TeamA/.*", Set.of(Item.READ.getId()), "");
+    roleMap.addRole(reader);
+    for (int i = 0; i < 1000; i++) {
+      roleMap.assignRole(reader, PermissionEntry.group("group" + i));
+    }
+    for (int i = 0; i < 1000; i++) {
+      // the default security realm compares sids case-insensitively
+      assertThat(roleMap.hasPermission(PermissionEntry.group("GROUP" + i), Item.READ, RoleType.Project, null), is(true));
+      assertThat(roleMap.hasPermission(PermissionEntry.group("other" + i), Item.READ, RoleType.Project, null), is(false));
+    }
+    assertThat(roleMap.hasPermission(PermissionEntry.user("group1"), Item.READ, RoleType.Project, null), is(false));
+
+    RoleMap matchingB = roleMap.newMatchingRoleMap("TeamB/job");
+    assertThat(matchingB.hasPermission(PermissionEntry.group("group1"), Item.READ, RoleType.Project, null), is(false));
+    RoleMap matchingA = roleMap.newMatchingRoleMap("TeamA/job");
+    assertThat(matchingA.hasPermission(PermissionEntry.group("group1"), Item.READ, RoleType.Project, null), is(true));
+  }
+
+  @Test
+  void batchesAreAppliedAtOnce() {
+    roleMap.assignRole(teamA, PermissionEntry.user("alice"));
+    RoleMap matchingA = roleMap.newMatchingRoleMap("TeamA/job");
+    RoleMap matchingB = roleMap.newMatchingRoleMap("TeamB/job");
+    Role teamC = new Role("teamC", "TeamC/.*", Collections.emptySet());
+
+    RoleMap.Batch batch = roleMap.batch()
+        .clearSids()
+        .assignRole(teamA, PermissionEntry.user("bob"))
+        .addRole(teamC)
+        .assignRole(teamC, PermissionEntry.group("devs"));
+    assertThat(roleMap.getSidEntriesForRole("teamA"), contains(PermissionEntry.user("alice")));
+    assertThat(roleMap.getRole("teamC"), nullValue());
+
+    batch.commit();
+    assertThat(roleMap.getSidEntriesForRole("teamA"), contains(PermissionEntry.user("bob")));
+    assertThat(roleMap.getSidEntriesForRole("teamC"), contains(PermissionEntry.group("devs")));
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job").getSidEntriesForRole("teamA"), contains(PermissionEntry.user("bob")));
+    assertThat(roleMap.newMatchingRoleMap("TeamB/job"), not(sameInstance(matchingB)));
+
+    RoleMap updatedA = roleMap.newMatchingRoleMap("TeamA/job");
+    roleMap.batch().removeRole(teamC).commit();
+    assertThat(roleMap.getRole("teamC"), nullValue());
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job"), sameInstance(updatedA));
+    assertThrows(UnsupportedOperationException.class, () -> matchingA.batch());
+  }
+
+  @Test
+  void roleNamesAreGroupedBySid() {
+    roleMap.assignRole(teamB, PermissionEntry.user("alice"));
+    roleMap.assignRole(teamA, PermissionEntry.user("alice"));
+    roleMap.assignRole(teamB, PermissionEntry.group("alice"));
+    assertThat(roleMap.getRoleNamesBySidEntry().keySet(), contains(PermissionEntry.user("alice"), PermissionEntry.group("alice")));
+    assertThat(roleMap.getRoleNamesBySidEntry().get(PermissionEntry.user("alice")), contains("teamA", "teamB"));
+    assertThat(roleMap.getRoleNamesBySidEntry().get(PermissionEntry.group("alice")), contains("teamB"));
+    assertThat(roleMap.newMatchingRoleMap("TeamA/job").getRoleNamesBySidEntry().keySet(), contains(PermissionEntry.user("alice")));
+
+    roleMap.unAssignRole(teamA, PermissionEntry.user("alice"));
+    assertThat(roleMap.getRoleNamesBySidEntry().get(PermissionEntry.user("alice")), contains("teamB"));
+  }
+
+  @Test
+  void pagesOfRolesAndSids() {
+    Role other = new Role("other", ".*", Collections.emptySet());
+    roleMap.addRole(other);
+    roleMap.assignRole(teamA, PermissionEntry.user("dev1"));
+    roleMap.assignRole(teamA, PermissionEntry.group("dev1"));
+    roleMap.assignRole(teamB, PermissionEntry.user("dev2"));
+    roleMap.assignRole(other, PermissionEntry.user("ops"));
+
+    assertThat(roleMap.getGrantedRolesPage(null, null, null, null, 2).keySet(), contains(other, teamA));
+    assertThat(roleMap.getGrantedRolesPage("teamA", null, null, null, 2).keySet(), contains(teamB));
+    assertThat(roleMap.getGrantedRolesPage(null, "team?", null, null, 10).keySet(), contains(teamA, teamB));
+    assertThat(roleMap.getGrantedRolesPage(null, "*B", null, null, 10).keySet(), contains(teamB));
+    assertThat(roleMap.getGrantedRolesPage(null, null, "dev", AuthorizationType.GROUP, 10).get(teamA),
+        contains(PermissionEntry.group("dev1")));
+    assertThat(roleMap.getGrantedRolesPage(null, null, "dev", AuthorizationType.GROUP, 10).keySet(), contains(teamA));
+
+    assertThat(roleMap.getRoleNamesBySidEntryPage(null, null, null, null, 2).keySet(),
+        contains(PermissionEntry.user("dev1"), PermissionEntry.group("dev1")));
+    assertThat(roleMap.getRoleNamesBySidEntryPage(PermissionEntry.group("dev1"), null, null, null, 2).keySet(),
+        contains(PermissionEntry.user("dev2"), PermissionEntry.user("ops")));
+    assertThat(roleMap.getRoleNamesBySidEntryPage(null, "dev", AuthorizationType.USER, null, 10).keySet(),
+        contains(PermissionEntry.user("dev1"), PermissionEntry.user("dev2")));
+    assertThat(roleMap.getRoleNamesBySidEntryPage(null, null, null, "teamB", 10).keySet(), contains(PermissionEntry.user("dev2")));
+    assertThat(roleMap.getRoleNamesBySidEntryPage(null, "x", null, null, 10).keySet(), empty());
+  }
+}
@@ -0,0 +1,82 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RolePatternMatcherTest {
+
+  private static final String[] PATTERNS = {
+    ".*", "^folder/.*$", "folder", "folder|other", "(folder|other)/.*", "a+b?c*", "[a-z]+", "[^/]+", "team-[0-9]+/.*",
+    "\\d+", "\\w+\\s?\\W*", "a.b", "[a-]+", "[\\]x]+", "(?:ab)*", "(a*)*b", "a*?b", "x\\.y", "^$", "a|$", "[a\\-z]+",
+    ".*folder.*", "folder/(sub1|sub2)/.*", ".", "[^a]",
+    // literals and literal prefixes
+    "TeamA(/.*)?", "^TeamA/.*", "TeamA/B(/.*)", "a\\$", "a(?:/b.*)?$", "ab\\.c.*",
+    // not supported by the automaton
+    "a{2}", "(?i)folder", "a++", "\\Qa.b\\E", "(?=a).*"
+  };
+
+  private static final String[] NAMES = {
+    "", "folder", "Folder", "other", "folder/job", "other/sub/job", "team-12/job", "team-/job", "aab", "ac", "b", "ab",
+    "abab", "a.b", "axb", "x.y", "xzy", "a-a", "]x]", "folder/sub1/job", "folder/sub3/job", "a", "aa", "a\nb", "a b!",
+    "\n", "123", "a_1 ", "-", "TeamA", "TeamA/job", "TeamA/B", "TeamA/B/job", "TeamA/\n", "a$", "a/b", "a/bc", "ab.c",
+    "ab.cd\n"
+  };
+
+  private static List<Role> createRoles() {
+    List<Role> roles = new ArrayList<>();
+    for (int i = 0; i < PATTERNS.length; i++) {
+      roles.add(new Role("role" + i, PATTERNS[i], Collections.emptySet()));
+    }
+    return roles;
+  }
+
+  @Test
+  void matchesLikeRegularExpressions() {
+    List<Role> roles = createRoles();
+    RolePatternMatcher matcher = new RolePatternMatcher(roles);
+    for (String name : NAMES) {
+      List<Role> expected = new ArrayList<>();
+      for (Role role : roles) {
+        if (role.getPattern().matcher(name).matches()) {
+          expected.add(role);
+        }
+      }
+      assertEquals(expected, matcher.getMatchingRoles(name), "roles matching '" + name + "'");
+    }
+  }
+
+  @Test
+  void unsupportedPatternsFallBackToRegularExpressions() {
+    assertThat(new RolePatternMatcher(createRoles()).getFallbackCount(), is(5));
+  }
+
+  @Test
+  void literalAndPrefixPatternsUseTheFastPath() {
+    RolePatternMatcher matcher = new RolePatternMatcher(createRoles());
+    // folder, x\.y, ^$ and a\$
+    assertThat(matcher.getLiteralCount(), is(4));
+    // .*, ^folder/.*$, ^TeamA/.*, ab\.c.* and the ones using a group
+    assertThat(matcher.getPrefixCount(), is(7));
+  }
+
+  @Test
+  void noRoles() {
+    assertThat(new RolePatternMatcher(Collections.emptyList()).getMatchingRoles("folder"), empty());
+  }
+
+  @Test
+  void supplementaryCharacters() {
+    Role role = new Role("emoji", "[\uD83D\uDE00-\uD83D\uDE02].", Collections.emptySet());
+    RolePatternMatcher matcher = new RolePatternMatcher(List.of(role));
+    assertThat(matcher.getMatchingRoles("\uD83D\uDE01\uD83D\uDE00"), contains(role));
+    assertThat(matcher.getMatchingRoles("\uD83D\uDE03a"), empty());
+  }
+}
@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
 import org.junit.jupiter.api.Test;
 
 class RoleTest {
@@ -29,6 +30,16 @@ class RoleTest {
     assertFalse(role.hasAnyPermission(new HashSet<>(Arrays.asList(Permission.UPDATE, Permission.WRITE))));
   }
 
+  @Test
+  void testHasAnyPermissionsMask() {
+    Role role = new Role("name", new HashSet<>((Arrays.asList(Permission.READ, Permission.DELETE))));
+    assertTrue(role.hasAnyPermission(PermissionMask.of(Arrays.asList(Permission.READ, Permission.WRITE))));
+    assertFalse(role.hasAnyPermission(PermissionMask.of(Arrays.asList(Permission.UPDATE, Permission.WRITE))));
+    assertFalse(role.hasAnyPermission(PermissionMask.EMPTY));
+    assertTrue(role.getPermissionMask().contains(Permission.DELETE));
+    assertFalse(role.getPermissionMask().contains(Permission.CREATE));
+  }
+
   @Test
   void shouldNotAddNullPermToNewRole() {
     Permission permission = Permission.CREATE;
@@ -0,0 +1,115 @@
+package com.michelin.cio.hudson.plugins.rolestrategy;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import hudson.security.AbstractPasswordBasedSecurityRealm;
+import hudson.security.GroupDetails;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+@WithJenkins
+class UserAuthoritiesCacheTest {
+
+  private static final long DELAY_MILLIS = 200;
+
+  private SlowSecurityRealm realm;
+
+  @BeforeEach
+  void setUp(JenkinsRule jenkinsRule) {
+    realm = new SlowSecurityRealm();
+    jenkinsRule.jenkins.setSecurityRealm(realm);
+  }
+
+  @AfterEach
+  void tearDown() {
+    UserAuthoritiesCache.invalidateAll();
+  }
+
+  @Test
+  void concurrentLoadsAreCoalesced() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Set<String>>> lookups = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        lookups.add(() -> UserAuthoritiesCache.getAuthorities("alice"));
+      }
+      for (Future<Set<String>> result : executor.invokeAll(lookups, 10, TimeUnit.SECONDS)) {
+        assertThat(result.get(), contains("developers"));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(realm.loads.get(), is(1));
+    assertThat(UserAuthoritiesCache.getAuthorities("alice"), contains("developers"));
+    assertThat(realm.loads.get(), is(1));
+    double delayNanos = TimeUnit.MILLISECONDS.toNanos(DELAY_MILLIS);
+    assertThat(UserAuthoritiesCache.getStats().averageLoadPenalty(), greaterThanOrEqualTo(delayNanos));
+  }
+
+  @Test
+  void unknownUsersHaveNoAuthorities() {
+    assertThat(UserAuthoritiesCache.getAuthorities("unknown"), empty());
+    assertThat(UserAuthoritiesCache.getAuthorities("unknown"), empty());
+    assertThat(realm.loads.get(), is(1));
+  }
+
+  @Test
+  void securityRealmChangeDiscardsAuthorities(JenkinsRule jenkinsRule) {
+    UserAuthoritiesCache.getAuthorities("alice");
+    SlowSecurityRealm other = new SlowSecurityRealm();
+    jenkinsRule.jenkins.setSecurityRealm(other);
+    UserAuthoritiesCache.getAuthorities("alice");
+    assertThat(other.loads.get(), is(1));
+  }
+
+  /**
+   * Security realm taking some time to look up users, like a remote directory.
+   */
+  private static class SlowSecurityRealm extends AbstractPasswordBasedSecurityRealm {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Override
+    protected UserDetails authenticate2(String username, String password) {
+      return loadUserByUsername2(username);
+    }
+
+    @Override
+    public UserDetails loadUserByUsername2(String username) throws UsernameNotFoundException {
+      loads.incrementAndGet();
+      try {
+        Thread.sleep(DELAY_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (!username.equals("alice")) {
+        throw new UsernameNotFoundException(username);
+      }
+      return new User(username, "", Set.of(new SimpleGrantedAuthority("developers")));
+    }
+
+    @Override
+    public GroupDetails loadGroupByGroupname2(String groupname, boolean fetchMembers) throws UsernameNotFoundException {
+      throw new UsernameNotFoundException(groupname);
+    }
+  }
+}
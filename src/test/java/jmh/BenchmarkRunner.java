@@ -1,15 +1,35 @@
 package jmh;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import jenkins.benchmark.jmh.BenchmarkFinder;
+import jmh.benchmarks.PermissionBenchmark;
 import org.junit.jupiter.api.Test;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
 import org.openjdk.jmh.results.format.ResultFormatType;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 class BenchmarkRunner {
+  /**
+   * Benchmarks on the hot path of permission checks, which must not allocate once warmed up: the check of a single sid
+   * by a {@link com.michelin.cio.hudson.plugins.rolestrategy.RoleMap}, and the check of an authentication on the root
+   * ACL answered by the decision cache. Decisions computed by {@link hudson.security.SidACL}, and the full names of
+   * nested items, still allocate.
+   */
+  private static final Set<String> ALLOCATION_FREE_BENCHMARKS = Set.of(
+      PermissionBenchmark.class.getName() + ".roleMapPermissionBenchmark",
+      PermissionBenchmark.class.getName() + ".aclPermissionBenchmark");
+
   @Test
   void runJmhBenchmarks() throws Exception {
     ChainedOptionsBuilder options = new OptionsBuilder()
@@ -21,10 +41,27 @@ class BenchmarkRunner {
         .measurementIterations(15)
         .shouldFailOnError(true)
         .shouldDoGC(true).resultFormat(ResultFormatType.JSON)
+        .addProfiler(GCProfiler.class)
         .result("jmh-report.json");
 
     BenchmarkFinder bf = new BenchmarkFinder(getClass());
     bf.findBenchmarks(options);
-    new Runner(options.build()).run();
+    Collection<RunResult> results = new Runner(options.build()).run();
+    for (RunResult result : results) {
+      String benchmark = result.getParams().getBenchmark();
+      if (ALLOCATION_FREE_BENCHMARKS.contains(benchmark)) {
+        assertThat(benchmark + " allocates", getAllocatedBytesPerOperation(result), lessThan(1.0));
+      }
+    }
+  }
+
+  private static double getAllocatedBytesPerOperation(RunResult result) {
+    for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+      // older JMH versions prefix the label with a middle dot
+      if (secondary.getKey().endsWith("gc.alloc.rate.norm")) {
+        return secondary.getValue().getScore();
+      }
+    }
+    throw new AssertionError("No allocation rate reported for " + result.getParams().getBenchmark());
   }
 }
@@ -0,0 +1,92 @@
+package jmh.benchmarks;
+
+import com.cloudbees.hudson.plugins.folder.Folder;
+import com.michelin.cio.hudson.plugins.rolestrategy.AuthorizationType;
+import com.michelin.cio.hudson.plugins.rolestrategy.PermissionEntry;
+import com.michelin.cio.hudson.plugins.rolestrategy.Role;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleBasedAuthorizationStrategy;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleMap;
+import hudson.model.FreeStyleProject;
+import hudson.model.Item;
+import hudson.model.User;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Compares {@link RoleBasedAuthorizationStrategy#filterPermitted} with individual permission checks on 10k items.
+ */
+@JmhBenchmark
+public class BulkAuthorizationBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class JenkinsState extends JmhBenchmarkState {
+    List<Item> items = new ArrayList<>();
+    RoleBasedAuthorizationStrategy rbas = null;
+    Authentication user = null;
+
+    @Override
+    public void setup() throws Exception {
+      Jenkins jenkins = Objects.requireNonNull(Jenkins.getInstanceOrNull());
+      jenkins.setSecurityRealm(new JenkinsRule().createDummySecurityRealm());
+
+      Set<String> permissions = new HashSet<>();
+      Collections.addAll(permissions, "hudson.model.Item.Discover", "hudson.model.Item.Read", "hudson.model.Item.Build");
+
+      /*
+       * 100 folders of 100 projects, one role per folder, the user is granted 10 of them.
+       */
+      SortedMap<Role, Set<PermissionEntry>> projectRoles = new TreeMap<>();
+      for (int i = 0; i < 100; i++) {
+        Folder folder = jenkins.createProject(Folder.class, "Folder" + i);
+        for (int j = 0; j < 100; j++) {
+          items.add(folder.createProject(FreeStyleProject.class, "Project" + j));
+        }
+        Set<PermissionEntry> sids = new HashSet<>();
+        sids.add(new PermissionEntry(AuthorizationType.USER, "user" + i));
+        if (i % 10 == 0) {
+          sids.add(new PermissionEntry(AuthorizationType.USER, "reader"));
+        }
+        projectRoles.put(new Role("folder" + i, "Folder" + i + "(/.*)?", permissions, ""), sids);
+      }
+
+      Map<String, RoleMap> rbasMap = new HashMap<>(1);
+      rbasMap.put(RoleBasedAuthorizationStrategy.PROJECT, new RoleMap(projectRoles));
+      rbas = new RoleBasedAuthorizationStrategy(rbasMap);
+      jenkins.setAuthorizationStrategy(rbas);
+      user = User.getById("reader", true).impersonate2();
+    }
+  }
+
+  @Benchmark
+  public void individualChecks(JenkinsState state, Blackhole blackhole) {
+    List<Item> permitted = new ArrayList<>();
+    for (Item item : state.items) {
+      if (item.hasPermission2(state.user, Item.BUILD)) {
+        permitted.add(item);
+      }
+    }
+    blackhole.consume(permitted);
+  }
+
+  @Benchmark
+  public void filterPermitted(JenkinsState state, Blackhole blackhole) {
+    blackhole.consume(state.rbas.filterPermitted(state.user, Item.BUILD, state.items));
+  }
+}
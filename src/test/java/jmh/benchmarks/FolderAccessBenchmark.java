@@ -7,6 +7,7 @@ import com.michelin.cio.hudson.plugins.rolestrategy.Role;
 import com.michelin.cio.hudson.plugins.rolestrategy.RoleBasedAuthorizationStrategy;
 import com.michelin.cio.hudson.plugins.rolestrategy.RoleMap;
 import hudson.model.FreeStyleProject;
+import hudson.model.Item;
 import hudson.model.TopLevelItem;
 import hudson.model.User;
 import hudson.security.ACL;
@@ -41,6 +42,7 @@ public class FolderAccessBenchmark {
   public static class JenkinsState extends JmhBenchmarkState {
     List<Folder> topFolders = new ArrayList<>();
     FreeStyleProject testProject = null;
+    Folder deepFolder = null;
     Map<String, TopLevelItem> items = null;
     RoleMap projectRoleMap = null;
 
@@ -108,6 +110,21 @@ public class FolderAccessBenchmark {
         topFolders.add(folder);
       }
 
+      /*
+       * Deep nesting: 6 levels of folders, the deepest one containing 500 projects.
+       * Every project checks READ on all its ancestors.
+       */
+      Folder parent = jenkins.createProject(Folder.class, "Deep0");
+      for (int level = 1; level < 6; level++) {
+        parent = parent.createProject(Folder.class, "Deep" + level);
+      }
+      for (int k = 0; k < 500; k++) {
+        parent.createProject(FreeStyleProject.class, "Project" + k);
+      }
+      deepFolder = parent;
+      projectRoles.put(new Role("deepReader", "Deep0(/.*)?", userPermissions, ""),
+          Collections.singleton(new PermissionEntry(AuthorizationType.USER, "user33")));
+
       Map<String, RoleMap> rbasMap = new HashMap<>(1);
       projectRoleMap = new RoleMap(projectRoles);
       rbasMap.put(RoleBasedAuthorizationStrategy.PROJECT, projectRoleMap);
@@ -150,4 +167,26 @@ public class FolderAccessBenchmark {
     }
     blackhole.consume(viewableItems);
   }
+
+  /**
+   * Simulates rendering a folder nested 6 levels deep, each of its 500 projects checks READ on its 5 ancestors.
+   */
+  @Benchmark
+  public void renderDeepFolderSimulation(JenkinsState state, ThreadState threadState, Blackhole blackhole) {
+    List<Item> viewableItems = new ArrayList<>();
+    for (Item item : state.deepFolder.getItems()) {
+      if (item.hasPermission(Item.READ)) {
+        viewableItems.add(item);
+      }
+    }
+    blackhole.consume(viewableItems);
+  }
+
+  /**
+   * Checks READ on a single project nested 6 levels deep.
+   */
+  @Benchmark
+  public void deepProjectRead(JenkinsState state, ThreadState threadState, Blackhole blackhole) {
+    blackhole.consume(state.deepFolder.getItem("Project250").hasPermission(Item.READ));
+  }
 }
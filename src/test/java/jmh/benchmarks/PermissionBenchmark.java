@@ -5,15 +5,23 @@ import com.michelin.cio.hudson.plugins.rolestrategy.PermissionEntry;
 import com.michelin.cio.hudson.plugins.rolestrategy.Role;
 import com.michelin.cio.hudson.plugins.rolestrategy.RoleBasedAuthorizationStrategy;
 import com.michelin.cio.hudson.plugins.rolestrategy.RoleMap;
+import com.synopsys.arc.jenkins.plugins.rolestrategy.RoleType;
+import hudson.model.Computer;
+import hudson.model.Item;
 import hudson.model.User;
+import hudson.security.ACL;
 import hudson.security.Permission;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import jenkins.benchmark.jmh.JmhBenchmark;
 import jenkins.benchmark.jmh.JmhBenchmarkState;
 import jenkins.model.Jenkins;
+import org.apache.commons.collections.CollectionUtils;
+import org.jenkinsci.plugins.rolestrategy.permissions.PermissionMask;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
@@ -30,18 +38,26 @@ import org.springframework.security.core.context.SecurityContextHolder;
 public class PermissionBenchmark {
   @State(Scope.Benchmark)
   public static class JenkinsState extends JmhBenchmarkState {
+    private RoleMap roleMap;
+    private PermissionEntry alice;
+    private ACL acl;
+    private Authentication aliceAuthentication;
+
     @Override
     public void setup() {
       Jenkins jenkins = Objects.requireNonNull(Jenkins.getInstanceOrNull());
       Set<String> permissionSet = Collections.singleton("hudson.model.Hudson.Administer");
       Role role = new Role("USERS", ".*", permissionSet, "description");
-      RoleMap roleMap = new RoleMap(new TreeMap<>(// expects a sorted map
-          Collections.singletonMap(role, Collections.singleton(new PermissionEntry(AuthorizationType.USER, "alice")))));
+      alice = new PermissionEntry(AuthorizationType.USER, "alice");
+      roleMap = new RoleMap(new TreeMap<>(// expects a sorted map
+          Collections.singletonMap(role, Collections.singleton(alice))));
 
       jenkins.setAuthorizationStrategy(
           new RoleBasedAuthorizationStrategy(Collections.singletonMap(RoleBasedAuthorizationStrategy.GLOBAL, roleMap)));
 
       jenkins.setSecurityRealm(new JenkinsRule().createDummySecurityRealm());
+      acl = roleMap.getACL(RoleType.Global, null);
+      aliceAuthentication = User.getById("alice", true).impersonate2();
     }
   }
 
@@ -63,8 +79,57 @@ public class PermissionBenchmark {
     }
   }
 
+  /**
+   * Permissions of a typical item role and the permissions implying {@link Item#READ}, as a set and as a mask.
+   */
+  @State(Scope.Benchmark)
+  public static class PermissionSetState {
+    private Set<Permission> rolePermissions;
+    private Set<Permission> implyingPermissions;
+    private PermissionMask rolePermissionMask;
+    private PermissionMask implyingPermissionMask;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      rolePermissions = new HashSet<>(Arrays.asList(Item.BUILD, Item.CANCEL, Item.CONFIGURE, Item.WORKSPACE, Computer.BUILD));
+      implyingPermissions = new HashSet<>();
+      for (Permission p = Item.READ; p != null; p = p.impliedBy) {
+        implyingPermissions.add(p);
+      }
+      rolePermissionMask = PermissionMask.of(rolePermissions);
+      implyingPermissionMask = PermissionMask.of(implyingPermissions);
+    }
+  }
+
   @Benchmark
   public void roleAssignmentBenchmark(JenkinsState jenkinsState, AuthenticationState authState, Blackhole blackhole) {
     blackhole.consume(jenkinsState.getJenkins().hasPermission(Permission.READ));
   }
+
+  /**
+   * Permission check of a single sid, which is expected not to allocate. See {@link jmh.BenchmarkRunner}.
+   */
+  @Benchmark
+  public void roleMapPermissionBenchmark(JenkinsState jenkinsState, Blackhole blackhole) {
+    blackhole.consume(jenkinsState.roleMap.hasPermission(jenkinsState.alice, Permission.READ, RoleType.Global, null));
+  }
+
+  /**
+   * Permission check of an authentication through the ACL, answered by the decision cache once warmed up, which is
+   * expected not to allocate. See {@link jmh.BenchmarkRunner}.
+   */
+  @Benchmark
+  public void aclPermissionBenchmark(JenkinsState jenkinsState, Blackhole blackhole) {
+    blackhole.consume(jenkinsState.acl.hasPermission2(jenkinsState.aliceAuthentication, Permission.READ));
+  }
+
+  @Benchmark
+  public void permissionSetBenchmark(PermissionSetState state, Blackhole blackhole) {
+    blackhole.consume(CollectionUtils.containsAny(state.rolePermissions, state.implyingPermissions));
+  }
+
+  @Benchmark
+  public void permissionMaskBenchmark(PermissionSetState state, Blackhole blackhole) {
+    blackhole.consume(state.rolePermissionMask.intersects(state.implyingPermissionMask));
+  }
 }
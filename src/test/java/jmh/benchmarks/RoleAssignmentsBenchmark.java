@@ -0,0 +1,84 @@
+package jmh.benchmarks;
+
+import com.michelin.cio.hudson.plugins.rolestrategy.AuthorizationType;
+import com.michelin.cio.hudson.plugins.rolestrategy.PermissionEntry;
+import com.michelin.cio.hudson.plugins.rolestrategy.Role;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Groups the roles of 10,000 sids assigned to 2,000 roles, as done by the {@code getRoleAssignments} endpoint.
+ */
+@JmhBenchmark
+public class RoleAssignmentsBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class RoleMapState extends JmhBenchmarkState {
+    RoleMap roleMap = null;
+    Role firstRole = null;
+    PermissionEntry extraSid = new PermissionEntry(AuthorizationType.USER, "extra");
+
+    @Override
+    public void setup() throws Exception {
+      // every sid is assigned to 4 roles, every role has 20 sids
+      SortedMap<Role, Set<PermissionEntry>> map = new TreeMap<>();
+      for (int i = 0; i < 2000; i++) {
+        Set<PermissionEntry> sids = new HashSet<>();
+        for (int j = 0; j < 20; j++) {
+          int sid = (i * 20 + j) % 10000;
+          sids.add(new PermissionEntry(sid % 2 == 0 ? AuthorizationType.USER : AuthorizationType.GROUP, "sid" + sid));
+        }
+        map.put(new Role("role" + i, "Project" + i + "/.*", new HashSet<>(Arrays.asList("hudson.model.Item.Read")), ""), sids);
+      }
+      roleMap = new RoleMap(map);
+      firstRole = roleMap.getRole("role0");
+    }
+  }
+
+  /**
+   * Groups the roles after each modification of the role map, which is what a polling client usually sees.
+   */
+  @Benchmark
+  public void singlePass(RoleMapState state, Blackhole blackhole) {
+    state.roleMap.batch().assignRole(state.firstRole, state.extraSid).unAssignRole(state.firstRole, state.extraSid).commit();
+    blackhole.consume(state.roleMap.getRoleNamesBySidEntry());
+  }
+
+  /**
+   * Groups the roles of an unmodified role map.
+   */
+  @Benchmark
+  public void unmodified(RoleMapState state, Blackhole blackhole) {
+    blackhole.consume(state.roleMap.getRoleNamesBySidEntry());
+  }
+
+  /**
+   * Scans all the roles for each sid, like the endpoint used to.
+   */
+  @Benchmark
+  public void scanRolesForEachSid(RoleMapState state, Blackhole blackhole) {
+    SortedMap<Role, Set<PermissionEntry>> grantedRoles = state.roleMap.getGrantedRolesEntries();
+    for (PermissionEntry entry : state.roleMap.getSidEntries(true)) {
+      List<String> roles = new ArrayList<>();
+      for (Map.Entry<Role, Set<PermissionEntry>> roleEntry : grantedRoles.entrySet()) {
+        if (roleEntry.getValue().contains(entry)) {
+          roles.add(roleEntry.getKey().getName());
+        }
+      }
+      blackhole.consume(roles);
+    }
+  }
+}
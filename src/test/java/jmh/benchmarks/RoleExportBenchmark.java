@@ -0,0 +1,91 @@
+package jmh.benchmarks;
+
+import com.michelin.cio.hudson.plugins.rolestrategy.AuthorizationType;
+import com.michelin.cio.hudson.plugins.rolestrategy.PermissionEntry;
+import com.michelin.cio.hudson.plugins.rolestrategy.Role;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleBasedAuthorizationStrategy;
+import com.michelin.cio.hudson.plugins.rolestrategy.RoleMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import jenkins.benchmark.jmh.JmhBenchmarkState;
+import jenkins.model.Jenkins;
+import jmh.JmhJenkinsRule;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Exports 2,000 project roles with 40,000 assignments of 10,000 sids through the REST API.
+ */
+@JmhBenchmark
+public class RoleExportBenchmark {
+
+  public static class JenkinsState extends JmhBenchmarkState {
+    @Override
+    public void setup() throws Exception {
+      Jenkins jenkins = Objects.requireNonNull(Jenkins.getInstanceOrNull());
+      jenkins.setSecurityRealm(new JenkinsRule().createDummySecurityRealm());
+
+      SortedMap<Role, Set<PermissionEntry>> globalRoles = new TreeMap<>();
+      globalRoles.put(new Role("admin", ".*", Collections.singleton("hudson.model.Hudson.Administer"), ""),
+          Collections.singleton(new PermissionEntry(AuthorizationType.USER, "admin")));
+
+      Set<String> permissions = new HashSet<>();
+      Collections.addAll(permissions, "hudson.model.Item.Discover", "hudson.model.Item.Read", "hudson.model.Item.Build");
+      SortedMap<Role, Set<PermissionEntry>> projectRoles = new TreeMap<>();
+      for (int i = 0; i < 2000; i++) {
+        Set<PermissionEntry> sids = new HashSet<>();
+        for (int j = 0; j < 20; j++) {
+          int sid = (i * 20 + j) % 10000;
+          sids.add(new PermissionEntry(j % 2 == 0 ? AuthorizationType.USER : AuthorizationType.GROUP, "sid" + sid));
+        }
+        projectRoles.put(new Role("role" + i, "Project" + i + "/.*", permissions, ""), sids);
+      }
+
+      Map<String, RoleMap> rbasMap = new HashMap<>(2);
+      rbasMap.put(RoleBasedAuthorizationStrategy.GLOBAL, new RoleMap(globalRoles));
+      rbasMap.put(RoleBasedAuthorizationStrategy.PROJECT, new RoleMap(projectRoles));
+      jenkins.setAuthorizationStrategy(new RoleBasedAuthorizationStrategy(rbasMap));
+    }
+  }
+
+  // WebClient is not thread-safe, so use a different WebClient for each thread
+  @State(Scope.Thread)
+  public static class ThreadState {
+    JenkinsRule.WebClient webClient = null;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+      JmhJenkinsRule j = new JmhJenkinsRule();
+      webClient = j.createWebClient();
+      webClient.login("admin", "admin");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+      webClient.close();
+    }
+  }
+
+  @Benchmark
+  public void getAllRoles(JenkinsState state, ThreadState threadState, Blackhole blackhole) throws Exception {
+    blackhole.consume(threadState.webClient.goTo("role-strategy/strategy/getAllRoles?type=projectRoles", "application/json"));
+  }
+
+  @Benchmark
+  public void getRoleAssignments(JenkinsState state, ThreadState threadState, Blackhole blackhole) throws Exception {
+    blackhole.consume(threadState.webClient.goTo("role-strategy/strategy/getRoleAssignments?type=projectRoles", "application/json"));
+  }
+}
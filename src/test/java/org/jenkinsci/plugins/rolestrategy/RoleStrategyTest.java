@@ -12,13 +12,17 @@ import hudson.PluginManager;
 import hudson.model.User;
 import hudson.security.ACL;
 import hudson.security.ACLContext;
+import hudson.security.HudsonPrivateSecurityRealm;
 import hudson.security.Permission;
+import java.util.Collections;
+import jenkins.model.IdStrategy;
 import jenkins.model.Jenkins;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
 import org.jvnet.hudson.test.recipes.LocalData;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
 @WithJenkins
 class RoleStrategyTest {
@@ -67,6 +71,24 @@ class RoleStrategyTest {
     }
   }
 
+  @LocalData
+  @Test
+  void testRoleAssignmentFollowsSecurityRealmIdStrategy() {
+    RoleMap.FORCE_CASE_SENSITIVE = false;
+    try (ACLContext c = ACL.as(User.getById("Alice", true))) {
+      assertTrue(jenkinsRule.jenkins.hasPermission(Permission.READ));
+    }
+    jenkinsRule.jenkins.setSecurityRealm(new HudsonPrivateSecurityRealm(false, false, null) {
+      @Override
+      public IdStrategy getUserIdStrategy() {
+        return new IdStrategy.CaseSensitive();
+      }
+    });
+    try (ACLContext c = ACL.as2(new UsernamePasswordAuthenticationToken("Alice", "", Collections.emptySet()))) {
+      assertFalse(jenkinsRule.jenkins.hasPermission(Permission.READ));
+    }
+  }
+
   @LocalData
   @Test
   void dangerousPermissionsAreIgnored() {
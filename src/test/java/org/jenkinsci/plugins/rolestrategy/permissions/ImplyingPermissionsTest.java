@@ -0,0 +1,51 @@
+package org.jenkinsci.plugins.rolestrategy.permissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.Item;
+import hudson.security.Permission;
+import hudson.security.PermissionScope;
+import jenkins.model.Jenkins;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class ImplyingPermissionsTest {
+
+  @Test
+  void closureOfImpliedBy(JenkinsRule jenkinsRule) {
+    PermissionMask read = ImplyingPermissions.of(Item.READ);
+    assertTrue(read.contains(Item.READ));
+    assertTrue(read.contains(Jenkins.ADMINISTER));
+    assertFalse(read.contains(Item.CONFIGURE));
+    assertSame(read, ImplyingPermissions.of(Item.READ));
+  }
+
+  @Test
+  void dangerousPermissionsAreImpliedByAdminister(JenkinsRule jenkinsRule) {
+    assertEquals(ImplyingPermissions.of(Jenkins.ADMINISTER), ImplyingPermissions.of(Jenkins.RUN_SCRIPTS));
+  }
+
+  @Test
+  void newAndToggledPermissions(JenkinsRule jenkinsRule) {
+    ImplyingPermissions.of(Item.READ);
+    Permission custom = new Permission(Item.PERMISSIONS, "ImplyingPermissionsTest", null, Item.CONFIGURE, PermissionScope.ITEM);
+    PermissionMask mask = ImplyingPermissions.of(custom);
+    assertTrue(mask.contains(custom));
+    assertTrue(mask.contains(Item.CONFIGURE));
+    assertTrue(mask.contains(Jenkins.ADMINISTER));
+
+    custom.setEnabled(false);
+    try {
+      assertFalse(ImplyingPermissions.of(custom).contains(custom));
+      assertTrue(ImplyingPermissions.of(custom).contains(Item.CONFIGURE));
+    } finally {
+      custom.setEnabled(true);
+    }
+    assertTrue(ImplyingPermissions.of(custom).contains(custom));
+  }
+}